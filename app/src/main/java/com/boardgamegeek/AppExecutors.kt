@@ -2,18 +2,51 @@ package com.boardgamegeek
 
 import android.os.Handler
 import android.os.Looper
-
+import android.os.SystemClock
+import timber.log.Timber
 import java.util.concurrent.Executor
 import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 
 private const val NETWORK_THREAD_COUNT = 3
+private const val DISK_READ_THREAD_COUNT = 4
+private const val KEEP_ALIVE_SECONDS = 30L
+private const val SLOW_WAIT_MS = 500L
 
-class AppExecutors internal constructor(val diskIO: Executor, val networkIO: Executor, val mainThread: Executor) {
+/**
+ * Executors for background work, split by the kind of work so a long task of one kind doesn't starve the others:
+ *
+ * - [diskRead] runs database queries in parallel; SQLite's write-ahead log lets readers proceed alongside a writer.
+ * - [diskWrite] runs inserts, updates, deletes, imports, and other writes one at a time, in the order submitted.
+ * - [computation] runs CPU-bound work (calculating stats, parsing) on up to one thread per core.
+ */
+class AppExecutors internal constructor(
+        val diskRead: Executor,
+        val diskWrite: Executor,
+        val computation: Executor,
+        val networkIO: Executor,
+        val mainThread: Executor) {
 
-    constructor() : this(Executors.newSingleThreadExecutor(),
+    constructor() : this(MonitoredExecutor("disk-read", DISK_READ_THREAD_COUNT),
+            MonitoredExecutor("disk-write", 1),
+            MonitoredExecutor("computation", Runtime.getRuntime().availableProcessors().coerceIn(2, 4)),
             Executors.newFixedThreadPool(NETWORK_THREAD_COUNT),
             MainThreadExecutor())
 
+    /**
+     * Returns a line per pool with its queue depth and wait times, for debugging. Only debug builds collect these.
+     */
+    fun dumpMetrics(): String {
+        return listOf(diskRead, diskWrite, computation)
+                .filterIsInstance<MonitoredExecutor>()
+                .joinToString("\n") { it.metrics() }
+    }
+
     private class MainThreadExecutor : Executor {
         private val mainThreadHandler = Handler(Looper.getMainLooper())
 
@@ -21,4 +54,76 @@ class AppExecutors internal constructor(val diskIO: Executor, val networkIO: Exe
             mainThreadHandler.post(command)
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A bounded pool of named threads. In debug builds, records how long each task waited in the queue and logs the
+     * ones that waited longer than [SLOW_WAIT_MS].
+     */
+    private class MonitoredExecutor(private val name: String, threadCount: Int) : ThreadPoolExecutor(
+            threadCount,
+            threadCount,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            LinkedBlockingQueue(),
+            NamedThreadFactory(name)) {
+        private val taskCount = AtomicLong()
+        private val totalWaitMs = AtomicLong()
+        private val maxWaitMs = AtomicLong()
+        private val maxQueueDepth = AtomicInteger()
+
+        init {
+            allowCoreThreadTimeOut(true)
+        }
+
+        override fun execute(command: Runnable) {
+            if (!BuildConfig.DEBUG) {
+                super.execute(command)
+                return
+            }
+            val enqueuedAt = SystemClock.elapsedRealtime()
+            super.execute {
+                recordWait(SystemClock.elapsedRealtime() - enqueuedAt)
+                command.run()
+            }
+            maxQueueDepth.raiseTo(queue.size)
+        }
+
+        private fun recordWait(waitMs: Long) {
+            taskCount.incrementAndGet()
+            totalWaitMs.addAndGet(waitMs)
+            maxWaitMs.raiseTo(waitMs)
+            if (waitMs > SLOW_WAIT_MS) {
+                Timber.w("Task waited %,d ms on %s (%,d queued)", waitMs, name, queue.size)
+            }
+        }
+
+        fun metrics(): String {
+            val count = taskCount.get()
+            val averageWaitMs = if (count == 0L) 0L else totalWaitMs.get() / count
+            return "$name: $count tasks, ${queue.size} queued (max ${maxQueueDepth.get()}), " +
+                    "wait avg $averageWaitMs ms (max ${maxWaitMs.get()} ms)"
+        }
+
+        private fun AtomicInteger.raiseTo(value: Int) {
+            do {
+                val current = get()
+            } while (value > current && !compareAndSet(current, value))
+        }
+
+        private fun AtomicLong.raiseTo(value: Long) {
+            do {
+                val current = get()
+            } while (value > current && !compareAndSet(current, value))
+        }
+    }
+
+    private class NamedThreadFactory(private val name: String) : ThreadFactory {
+        private val threadNumber = AtomicInteger()
+
+        override fun newThread(runnable: Runnable): Thread {
+            return Thread(runnable, "$name-${threadNumber.incrementAndGet()}").apply {
+                priority = Thread.NORM_PRIORITY - 1
+            }
+        }
+    }
+}
@@ -16,6 +16,8 @@ import com.boardgamegeek.util.HttpUtils;
 import com.boardgamegeek.util.NotificationUtils;
 import com.boardgamegeek.util.RemoteConfig;
 import com.facebook.stetho.Stetho;
+import com.facebook.stetho.dumpapp.DumperContext;
+import com.facebook.stetho.dumpapp.DumperPlugin;
 import com.google.firebase.crashlytics.FirebaseCrashlytics;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.jakewharton.picasso.OkHttp3Downloader;
@@ -45,7 +47,19 @@ public class BggApplication extends MultiDexApplication {
 			enableStrictMode();
 			Stetho.initialize(
 				Stetho.newInitializerBuilder(this)
-					.enableDumpapp(Stetho.defaultDumperPluginsProvider(this))
+					.enableDumpapp(() -> new Stetho.DefaultDumperPluginsBuilder(this)
+						.provide(new DumperPlugin() {
+							@Override
+							public String getName() {
+								return "executors";
+							}
+
+							@Override
+							public void dump(DumperContext dumpContext) {
+								dumpContext.getStdout().println(appExecutors.dumpMetrics());
+							}
+						})
+						.finish())
 					.enableWebKitInspector(Stetho.defaultInspectorModulesProvider(this))
 					.build());
 		} else {
@@ -1,5 +1,6 @@
 package com.boardgamegeek.db
 
+import android.content.ContentProviderOperation
 import android.content.ContentValues
 import androidx.core.content.contentValuesOf
 import androidx.lifecycle.LiveData
@@ -156,15 +157,31 @@ class ArtistDao(private val context: BggApplication) {
         }
     }
 
-    fun loadCollection(id: Int): List<BriefGameEntity> {
-        val uri = Artists.buildArtistCollectionUri(id)
-        return collectionDao.loadLinkedCollection(uri)
+    /**
+     * Loads the linked collection of every artist, keyed by artist ID.
+     */
+    fun loadCollections(): Map<Int, List<BriefGameEntity>> {
+        return collectionDao.loadLinkedCollections(Artists.CONTENT_COLLECTION_URI, Artists.ARTIST_ID)
     }
 
     fun update(artistId: Int, values: ContentValues): Int {
         return context.contentResolver.update(Artists.buildArtistUri(artistId), values, null, null)
     }
 
+    /**
+     * Saves the Whitmore score of each artist in [scores], keyed by artist ID, in a single transaction.
+     */
+    fun updateWhitmoreScores(scores: Map<Int, Int>, timestamp: Long = System.currentTimeMillis()) {
+        val batch = arrayListOf<ContentProviderOperation>()
+        scores.forEach { (id, score) ->
+            batch += ContentProviderOperation.newUpdate(Artists.buildArtistUri(id))
+                    .withValue(Artists.WHITMORE_SCORE, score)
+                    .withValue(Artists.ARTIST_STATS_UPDATED_TIMESTAMP, timestamp)
+                    .build()
+        }
+        context.contentResolver.applyBatch(batch, "Saving artist Whitmore scores")
+    }
+
     private fun upsert(values: ContentValues, artistId: Int): Int {
         val resolver = context.contentResolver
         val uri = Artists.buildArtistUri(artistId)
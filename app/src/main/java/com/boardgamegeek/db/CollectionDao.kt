@@ -1,5 +1,6 @@
 package com.boardgamegeek.db
 
+import android.content.ContentProviderOperation
 import android.content.ContentResolver
 import android.content.ContentValues
 import android.content.SharedPreferences
@@ -266,7 +267,52 @@ class CollectionDao(private val context: BggApplication) {
 
     fun loadLinkedCollection(uri: Uri, sortBy: SortType = SortType.RATING): List<BriefGameEntity> {
         val list = arrayListOf<BriefGameEntity>()
+        val sortByName = Collection.GAME_SORT_NAME.collateNoCase().ascending()
+        val sortOrder = when (sortBy) {
+            SortType.NAME -> sortByName
+            SortType.RATING -> Collection.RATING.descending()
+                    .plus(", ${Collection.STARRED}").descending()
+                    .plus(", $sortByName")
+        }
+        context.contentResolver.load(
+                uri,
+                linkedCollectionProjection(),
+                linkedCollectionSelection(),
+                emptyArray(),
+                sortOrder
+        )?.use {
+            if (it.moveToFirst()) {
+                do {
+                    list += briefGameFromCursor(it)
+                } while (it.moveToNext())
+            }
+        }
+        return list
+    }
 
+    /**
+     * Loads the linked collections of every designer, artist, or publisher at [uri] in a single query, keyed by the
+     * value of [keyColumn]. Each collection is the same as [loadLinkedCollection] would load for that key.
+     */
+    fun loadLinkedCollections(uri: Uri, keyColumn: String): Map<Int, List<BriefGameEntity>> {
+        val map = mutableMapOf<Int, MutableList<BriefGameEntity>>()
+        context.contentResolver.load(
+                uri,
+                linkedCollectionProjection() + keyColumn,
+                linkedCollectionSelection(),
+                emptyArray(),
+                keyColumn
+        )?.use {
+            if (it.moveToFirst()) {
+                do {
+                    map.getOrPut(it.getInt(keyColumn)) { arrayListOf() } += briefGameFromCursor(it)
+                } while (it.moveToNext())
+            }
+        }
+        return map
+    }
+
+    private fun linkedCollectionSelection(): String {
         val selection = StringBuilder()
         val statuses = prefs.getSyncStatusesOrDefault()
         for (status in statuses) {
@@ -289,56 +335,43 @@ class CollectionDao(private val context: BggApplication) {
                 else -> ""
             })
         }
+        return selection.toString()
+    }
 
-        val sortByName = Collection.GAME_SORT_NAME.collateNoCase().ascending()
-        val sortOrder = when (sortBy) {
-            SortType.NAME -> sortByName
-            SortType.RATING -> Collection.RATING.descending()
-                    .plus(", ${Collection.STARRED}").descending()
-                    .plus(", $sortByName")
-        }
-        context.contentResolver.load(
-                uri,
-                arrayOf(
-                        Collection._ID,
-                        Collection.GAME_ID,
-                        Collection.GAME_NAME,
-                        Collection.COLLECTION_NAME,
-                        Collection.YEAR_PUBLISHED,
-                        Collection.COLLECTION_YEAR_PUBLISHED,
-                        Collection.COLLECTION_THUMBNAIL_URL,
-                        Collection.THUMBNAIL_URL,
-                        Collection.HERO_IMAGE_URL,
-                        Collection.RATING,
-                        Collection.STARRED,
-                        Collection.SUBTYPE,
-                        Collection.NUM_PLAYS
-                ),
-                selection.toString(),
-                emptyArray(),
-                sortOrder
-        )?.use {
-            if (it.moveToFirst()) {
-                do {
-                    list += BriefGameEntity(
-                            it.getLong(Collection._ID),
-                            it.getInt(Collection.GAME_ID),
-                            it.getStringOrEmpty(Collection.GAME_NAME),
-                            it.getStringOrEmpty(Collection.COLLECTION_NAME),
-                            it.getIntOrNull(Collection.YEAR_PUBLISHED) ?: YEAR_UNKNOWN,
-                            it.getIntOrNull(Collection.COLLECTION_YEAR_PUBLISHED) ?: YEAR_UNKNOWN,
-                            it.getStringOrEmpty(Collection.COLLECTION_THUMBNAIL_URL),
-                            it.getStringOrEmpty(Collection.THUMBNAIL_URL),
-                            it.getStringOrEmpty(Collection.HERO_IMAGE_URL),
-                            it.getDoubleOrZero(Collection.RATING),
-                            it.getBoolean(Collection.STARRED),
-                            it.getStringOrEmpty(Collection.SUBTYPE),
-                            it.getIntOrZero(Collection.NUM_PLAYS)
-                    )
-                } while (it.moveToNext())
-            }
-        }
-        return list
+    private fun linkedCollectionProjection(): Array<String> {
+        return arrayOf(
+                Collection._ID,
+                Collection.GAME_ID,
+                Collection.GAME_NAME,
+                Collection.COLLECTION_NAME,
+                Collection.YEAR_PUBLISHED,
+                Collection.COLLECTION_YEAR_PUBLISHED,
+                Collection.COLLECTION_THUMBNAIL_URL,
+                Collection.THUMBNAIL_URL,
+                Collection.HERO_IMAGE_URL,
+                Collection.RATING,
+                Collection.STARRED,
+                Collection.SUBTYPE,
+                Collection.NUM_PLAYS
+        )
+    }
+
+    private fun briefGameFromCursor(cursor: Cursor): BriefGameEntity {
+        return BriefGameEntity(
+                cursor.getLong(Collection._ID),
+                cursor.getInt(Collection.GAME_ID),
+                cursor.getStringOrEmpty(Collection.GAME_NAME),
+                cursor.getStringOrEmpty(Collection.COLLECTION_NAME),
+                cursor.getIntOrNull(Collection.YEAR_PUBLISHED) ?: YEAR_UNKNOWN,
+                cursor.getIntOrNull(Collection.COLLECTION_YEAR_PUBLISHED) ?: YEAR_UNKNOWN,
+                cursor.getStringOrEmpty(Collection.COLLECTION_THUMBNAIL_URL),
+                cursor.getStringOrEmpty(Collection.THUMBNAIL_URL),
+                cursor.getStringOrEmpty(Collection.HERO_IMAGE_URL),
+                cursor.getDoubleOrZero(Collection.RATING),
+                cursor.getBoolean(Collection.STARRED),
+                cursor.getStringOrEmpty(Collection.SUBTYPE),
+                cursor.getIntOrZero(Collection.NUM_PLAYS)
+        )
     }
 
     fun update(internalId: Long, values: ContentValues): Int {
@@ -385,6 +418,76 @@ class CollectionDao(private val context: BggApplication) {
         return item.collectionId
     }
 
+    /**
+     * Save a page of collection items in a single transaction. Sync candidates and existing games are looked up for
+     * the entire page at once instead of per item.
+     *
+     * @return the number of items saved (dirty items are skipped).
+     */
+    fun saveItems(items: List<Pair<CollectionItemEntity, CollectionItemGameEntity>>, timestamp: Long, includeStats: Boolean = true, includePrivateInfo: Boolean = true, isBrief: Boolean = false): Int {
+        if (items.isEmpty()) return 0
+        val candidates = SyncCandidate.findAll(resolver, items.map { it.first })
+        val existingGameIds = findExistingGameIds(items.map { it.first.gameId })
+        val thumbnailsToDelete = mutableListOf<String>()
+
+        val batch = arrayListOf<ContentProviderOperation>()
+        var savedCount = 0
+        for ((item, game) in items) {
+            val candidate = candidates.find(item.collectionId, item.gameId)
+            if (candidate.dirtyTimestamp != NOT_DIRTY) {
+                Timber.i("Local copy of the collection item %s is dirty, skipping sync.", item.collectionId)
+                continue
+            }
+
+            val gameValues = toGameValues(game, includeStats, isBrief, timestamp)
+            val gameOperation = if (existingGameIds.contains(item.gameId)) {
+                gameValues.remove(Games.GAME_ID)
+                if (isBrief) {
+                    gameValues.remove(Games.GAME_NAME)
+                    gameValues.remove(Games.GAME_SORT_NAME)
+                }
+                ContentProviderOperation.newUpdate(Games.buildGameUri(item.gameId)).withValues(gameValues)
+            } else {
+                existingGameIds.add(item.gameId)
+                ContentProviderOperation.newInsert(Games.CONTENT_URI).withValues(gameValues)
+            }
+            batch.add(gameOperation.withYieldAllowed(true).build())
+
+            val values = toCollectionValues(item, includeStats, includePrivateInfo, isBrief, timestamp)
+            if (candidate.internalId != INVALID_ID.toLong()) {
+                removeDirtyValues(values, candidate)
+                if (!isBrief) {
+                    val newThumbnailUrl = values.getAsString(Collection.COLLECTION_THUMBNAIL_URL).orEmpty()
+                    if (newThumbnailUrl != candidate.thumbnailUrl) {
+                        FileUtils.getFileNameFromUrl(candidate.thumbnailUrl)?.let { thumbnailsToDelete += it }
+                    }
+                }
+                batch.add(ContentProviderOperation.newUpdate(Collection.buildUri(candidate.internalId)).withValues(values).build())
+            } else {
+                batch.add(ContentProviderOperation.newInsert(Collection.CONTENT_URI).withValues(values).build())
+            }
+            savedCount++
+        }
+
+        resolver.applyBatch(batch, "Saving ${items.size} collection items")
+        thumbnailsToDelete.filter { it.isNotBlank() }.forEach {
+            resolver.delete(Thumbnails.buildUri(it), null, null)
+        }
+        Timber.i("Saved %,d collection items in one batch (%,d skipped as dirty)", savedCount, items.size - savedCount)
+        return savedCount
+    }
+
+    private fun findExistingGameIds(gameIds: List<Int>): MutableSet<Int> {
+        val existingIds = mutableSetOf<Int>()
+        gameIds.distinct().chunked(IN_CLAUSE_CHUNK_SIZE).forEach { chunk ->
+            existingIds += resolver.queryInts(
+                    Games.CONTENT_URI,
+                    Games.GAME_ID,
+                    "games.${Games.GAME_ID} IN (${chunk.joinToString(",")})")
+        }
+        return existingIds
+    }
+
     private fun toGameValues(game: CollectionItemGameEntity, includeStats: Boolean, isBrief: Boolean, timestamp: Long): ContentValues {
         val values = ContentValues()
         values.put(Games.UPDATED_LIST, timestamp)
@@ -540,10 +643,53 @@ class CollectionDao(private val context: BggApplication) {
             val wishListCommentDirtyTimestamp: Long = 0,
             val tradeConditionDirtyTimestamp: Long = 0,
             val wantPartsDirtyTimestamp: Long = 0,
-            val hasPartsDirtyTimestamp: Long = 0
+            val hasPartsDirtyTimestamp: Long = 0,
+            val thumbnailUrl: String = "",
     ) {
+        /**
+         * Sync candidates for a page of items, keyed by collection ID or, for items without one, by game ID. A row
+         * found by game ID is used up by the first item that takes it, so another copy of the same game gets a row of
+         * its own rather than overwriting the first.
+         */
+        class Lookup(private val byCollectionId: Map<Int, SyncCandidate>, private val byGameId: Map<Int, MutableList<SyncCandidate>>) {
+            fun find(collectionId: Int, gameId: Int): SyncCandidate {
+                return (if (collectionId != INVALID_ID) byCollectionId[collectionId] else null)
+                        ?: byGameId[gameId]?.let { if (it.isNotEmpty()) it.removeAt(0) else null }
+                        ?: SyncCandidate()
+            }
+        }
+
         companion object {
             val PROJECTION = arrayOf(Collection._ID, Collection.COLLECTION_DIRTY_TIMESTAMP, Collection.STATUS_DIRTY_TIMESTAMP, Collection.RATING_DIRTY_TIMESTAMP, Collection.COMMENT_DIRTY_TIMESTAMP, Collection.PRIVATE_INFO_DIRTY_TIMESTAMP, Collection.WISHLIST_COMMENT_DIRTY_TIMESTAMP, Collection.TRADE_CONDITION_DIRTY_TIMESTAMP, Collection.WANT_PARTS_DIRTY_TIMESTAMP, Collection.HAS_PARTS_DIRTY_TIMESTAMP)
+            private val BULK_PROJECTION = PROJECTION + arrayOf(Collection.COLLECTION_ID, Collection.GAME_ID, Collection.COLLECTION_THUMBNAIL_URL)
+
+            fun findAll(resolver: ContentResolver, items: List<CollectionItemEntity>): Lookup {
+                val byCollectionId = mutableMapOf<Int, SyncCandidate>()
+                val byGameId = mutableMapOf<Int, MutableList<SyncCandidate>>()
+                items.map { it.collectionId }.filter { it != INVALID_ID }.distinct().chunked(IN_CLAUSE_CHUNK_SIZE).forEach { chunk ->
+                    resolver.query(Collection.CONTENT_URI,
+                            BULK_PROJECTION,
+                            "collection.${Collection.COLLECTION_ID} IN (${chunk.joinToString(",")})",
+                            null,
+                            null)?.use {
+                        while (it.moveToNext()) {
+                            byCollectionId.getOrPut(it.getInt(Collection.COLLECTION_ID)) { fromCursor(it) }
+                        }
+                    }
+                }
+                items.filter { !byCollectionId.containsKey(it.collectionId) }.map { it.gameId }.distinct().chunked(IN_CLAUSE_CHUNK_SIZE).forEach { chunk ->
+                    resolver.query(Collection.CONTENT_URI,
+                            BULK_PROJECTION,
+                            "collection.${Collection.GAME_ID} IN (${chunk.joinToString(",")}) AND ${Collection.COLLECTION_ID.whereNullOrBlank()}",
+                            null,
+                            null)?.use {
+                        while (it.moveToNext()) {
+                            byGameId.getOrPut(it.getInt(Collection.GAME_ID)) { mutableListOf() } += fromCursor(it)
+                        }
+                    }
+                }
+                return Lookup(byCollectionId, byGameId)
+            }
 
             fun find(resolver: ContentResolver, collectionId: Int, gameId: Int): SyncCandidate {
                 if (collectionId != INVALID_ID) {
@@ -576,7 +722,8 @@ class CollectionDao(private val context: BggApplication) {
                         cursor.getLongOrZero(Collection.WISHLIST_COMMENT_DIRTY_TIMESTAMP),
                         cursor.getLongOrZero(Collection.TRADE_CONDITION_DIRTY_TIMESTAMP),
                         cursor.getLongOrZero(Collection.WANT_PARTS_DIRTY_TIMESTAMP),
-                        cursor.getLongOrZero(Collection.HAS_PARTS_DIRTY_TIMESTAMP)
+                        cursor.getLongOrZero(Collection.HAS_PARTS_DIRTY_TIMESTAMP),
+                        cursor.getString(Collection.COLLECTION_THUMBNAIL_URL, "")
                 )
             }
         }
@@ -652,6 +799,7 @@ class CollectionDao(private val context: BggApplication) {
 
     companion object {
         private const val NOT_DIRTY = 0L
+        private const val IN_CLAUSE_CHUNK_SIZE = 500
 
         private const val COLUMN_ID = 0
         private const val COLUMN_GAME_ID = 1
@@ -1,5 +1,6 @@
 package com.boardgamegeek.db
 
+import android.content.ContentProviderOperation
 import android.content.ContentValues
 import androidx.core.content.contentValuesOf
 import androidx.lifecycle.LiveData
@@ -156,15 +157,31 @@ class DesignerDao(private val context: BggApplication) {
         }
     }
 
-    fun loadCollection(id: Int): List<BriefGameEntity> {
-        val uri = Designers.buildDesignerCollectionUri(id)
-        return collectionDao.loadLinkedCollection(uri)
+    /**
+     * Loads the linked collection of every designer, keyed by designer ID.
+     */
+    fun loadCollections(): Map<Int, List<BriefGameEntity>> {
+        return collectionDao.loadLinkedCollections(Designers.CONTENT_COLLECTION_URI, Designers.DESIGNER_ID)
     }
 
     fun update(designerId: Int, values: ContentValues): Int {
         return context.contentResolver.update(Designers.buildDesignerUri(designerId), values, null, null)
     }
 
+    /**
+     * Saves the Whitmore score of each designer in [scores], keyed by designer ID, in a single transaction.
+     */
+    fun updateWhitmoreScores(scores: Map<Int, Int>, timestamp: Long = System.currentTimeMillis()) {
+        val batch = arrayListOf<ContentProviderOperation>()
+        scores.forEach { (id, score) ->
+            batch += ContentProviderOperation.newUpdate(Designers.buildDesignerUri(id))
+                    .withValue(Designers.WHITMORE_SCORE, score)
+                    .withValue(Designers.DESIGNER_STATS_UPDATED_TIMESTAMP, timestamp)
+                    .build()
+        }
+        context.contentResolver.applyBatch(batch, "Saving designer Whitmore scores")
+    }
+
     private fun upsert(values: ContentValues, designerId: Int): Int {
         val resolver = context.contentResolver
         val uri = Designers.buildDesignerUri(designerId)
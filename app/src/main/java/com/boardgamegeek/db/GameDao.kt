@@ -4,6 +4,7 @@ import android.content.ContentProviderOperation
 import android.content.ContentProviderOperation.Builder
 import android.content.ContentResolver
 import android.content.ContentValues
+import android.database.Cursor
 import android.graphics.Color
 import android.net.Uri
 import androidx.core.content.contentValuesOf
@@ -477,52 +478,94 @@ class GameDao(private val context: BggApplication) {
         return resolver.update(Games.buildGameUri(gameId), values, null, null)
     }
 
-    fun save(game: GameEntity, updateTime: Long) {
+    fun save(game: GameEntity, updateTime: Long): Int {
         // TODO return the internal ID
-        if (game.name.isBlank()) {
-            Timber.w("Missing name from game ID=%s", game.id)
-            return
-        }
+        return save(listOf(game), updateTime)
+    }
 
-        Timber.i("Saving game %s (%s)", game.name, game.id)
+    /**
+     * Saves the games, with their ranks, polls, expansions, and links, in one batch. The rows that already exist for
+     * the games - the games themselves, their child rows, and the designers, artists, publishers, categories, and
+     * mechanics they link to - are each looked up with a single query up front; every game is written in the same
+     * transaction as its links. If the batch fails, the games are saved again one at a time, so only the games that
+     * fail on their own are lost.
+     *
+     * @return the number of games written
+     */
+    fun save(games: List<GameEntity>, updateTime: Long): Int {
+        val gamesToSave = games.filter { game ->
+            game.name.isNotBlank().also { if (!it) Timber.w("Missing name from game ID=%s", game.id) }
+        }
+        if (gamesToSave.isEmpty()) return 0
+
+        val gameIds = gamesToSave.map { it.id }
+        val existingImageUrls = findExistingImageUrls(gameIds)
+        val existingRankIds = findExistingChildIds(gameIds, GameRanks.CONTENT_URI, GameRanks.GAME_ID, GameRanks.GAME_RANK_ID)
+        val existingPolls = findExistingPolls(gameIds)
+        val existingPlayerCounts = findExistingChildKeys(gameIds, buildGamesPathUri(PATH_SUGGESTED_PLAYER_COUNT_POLL_RESULTS), GameSuggestedPlayerCountPollPollResults.GAME_ID, GameSuggestedPlayerCountPollPollResults.PLAYER_COUNT)
+        val existingExpansionIds = findExistingChildIds(gameIds, GamesExpansions.CONTENT_URI, GamesExpansions.GAME_ID, GamesExpansions.EXPANSION_ID)
+        val existingDesignerIds = findExistingChildIds(gameIds, buildGamesPathUri(PATH_DESIGNERS), GamesDesigners.GAME_ID, GamesDesigners.DESIGNER_ID)
+        val existingArtistIds = findExistingChildIds(gameIds, buildGamesPathUri(PATH_ARTISTS), GamesArtists.GAME_ID, GamesArtists.ARTIST_ID)
+        val existingPublisherIds = findExistingChildIds(gameIds, buildGamesPathUri(PATH_PUBLISHERS), GamesPublishers.GAME_ID, GamesPublishers.PUBLISHER_ID)
+        val existingCategoryIds = findExistingChildIds(gameIds, buildGamesPathUri(PATH_CATEGORIES), GamesCategories.GAME_ID, GamesCategories.CATEGORY_ID)
+        val existingMechanicIds = findExistingChildIds(gameIds, buildGamesPathUri(PATH_MECHANICS), GamesMechanics.GAME_ID, GamesMechanics.MECHANIC_ID)
+
+        val designers = ReferenceTable(gamesToSave.flatMap { it.designers }, Designers.CONTENT_URI, Designers.DESIGNER_ID, Designers.DESIGNER_NAME)
+        val artists = ReferenceTable(gamesToSave.flatMap { it.artists }, Artists.CONTENT_URI, Artists.ARTIST_ID, Artists.ARTIST_NAME)
+        val publishers = ReferenceTable(gamesToSave.flatMap { it.publishers }, Publishers.CONTENT_URI, Publishers.PUBLISHER_ID, Publishers.PUBLISHER_NAME)
+        val categories = ReferenceTable(gamesToSave.flatMap { it.categories }, Categories.CONTENT_URI, Categories.CATEGORY_ID, Categories.CATEGORY_NAME)
+        val mechanics = ReferenceTable(gamesToSave.flatMap { it.mechanics }, Mechanics.CONTENT_URI, Mechanics.MECHANIC_ID, Mechanics.MECHANIC_NAME)
 
         val batch = arrayListOf<ContentProviderOperation>()
-
-        val cpoBuilder: Builder
-        val values = toValues(game, updateTime)
-        cpoBuilder = if (resolver.rowExists(Games.buildGameUri(game.id))) {
-            values.remove(Games.GAME_ID)
-            if (shouldClearHeroImageUrl(game)) {
-                values.put(Games.HERO_IMAGE_URL, "")
+        for (game in gamesToSave) {
+            Timber.i("Saving game %s (%s)", game.name, game.id)
+
+            val cpoBuilder: Builder
+            val values = toValues(game, updateTime)
+            val imageUrls = existingImageUrls[game.id]
+            cpoBuilder = if (imageUrls != null) {
+                values.remove(Games.GAME_ID)
+                if (imageUrls.first != game.imageUrl || imageUrls.second != game.thumbnailUrl) {
+                    values.put(Games.HERO_IMAGE_URL, "")
+                }
+                ContentProviderOperation.newUpdate(Games.buildGameUri(game.id))
+            } else {
+                ContentProviderOperation.newInsert(Games.CONTENT_URI)
             }
-            ContentProviderOperation.newUpdate(Games.buildGameUri(game.id))
-        } else {
-            ContentProviderOperation.newInsert(Games.CONTENT_URI)
-        }
-
-        batch.add(cpoBuilder.withValues(values).withYieldAllowed(true).build())
-        batch.addAll(createRanksBatch(game))
-        batch.addAll(createPollsBatch(game))
-        batch.addAll(createPlayerPollBatch(game.id, game.playerPoll))
-        batch.addAll(createExpansionsBatch(game.id, game.expansions))
-
-        saveReference(game.designers, Designers.CONTENT_URI, Designers.DESIGNER_ID, Designers.DESIGNER_NAME)
-        saveReference(game.artists, Artists.CONTENT_URI, Artists.ARTIST_ID, Artists.ARTIST_NAME)
-        saveReference(game.publishers, Publishers.CONTENT_URI, Publishers.PUBLISHER_ID, Publishers.PUBLISHER_NAME)
-        saveReference(game.categories, Categories.CONTENT_URI, Categories.CATEGORY_ID, Categories.CATEGORY_NAME)
-        saveReference(game.mechanics, Mechanics.CONTENT_URI, Mechanics.MECHANIC_ID, Mechanics.MECHANIC_NAME)
-
-        batch.addAll(createAssociationBatch(game.id, game.designers, PATH_DESIGNERS, GamesDesigners.DESIGNER_ID))
-        batch.addAll(createAssociationBatch(game.id, game.artists, PATH_ARTISTS, GamesArtists.ARTIST_ID))
-        batch.addAll(createAssociationBatch(game.id, game.publishers, PATH_PUBLISHERS, GamesPublishers.PUBLISHER_ID))
-        batch.addAll(createAssociationBatch(game.id, game.categories, PATH_CATEGORIES, GamesCategories.CATEGORY_ID))
-        batch.addAll(createAssociationBatch(game.id, game.mechanics, PATH_MECHANICS, GamesMechanics.MECHANIC_ID))
-
-        try {
-            resolver.applyBatch(batch, "Game ${game.id}")
-            Timber.i("Saved game ID '%s'", game.id)
+
+            // only the game operation yields, so a game and its links are always committed together
+            batch.add(cpoBuilder.withValues(values).withYieldAllowed(true).build())
+            batch.addAll(createRanksBatch(game, existingRankIds[game.id].orEmpty()))
+            batch.addAll(createPollsBatch(game, existingPolls[game.id].orEmpty()))
+            batch.addAll(createPlayerPollBatch(game.id, game.playerPoll, existingPlayerCounts[game.id].orEmpty()))
+            batch.addAll(createExpansionsBatch(game.id, game.expansions, existingExpansionIds[game.id].orEmpty()))
+
+            batch.addAll(designers.createBatch(game.designers))
+            batch.addAll(artists.createBatch(game.artists))
+            batch.addAll(publishers.createBatch(game.publishers))
+            batch.addAll(categories.createBatch(game.categories))
+            batch.addAll(mechanics.createBatch(game.mechanics))
+
+            batch.addAll(createAssociationBatch(game.id, game.designers, PATH_DESIGNERS, GamesDesigners.DESIGNER_ID, existingDesignerIds[game.id].orEmpty()))
+            batch.addAll(createAssociationBatch(game.id, game.artists, PATH_ARTISTS, GamesArtists.ARTIST_ID, existingArtistIds[game.id].orEmpty()))
+            batch.addAll(createAssociationBatch(game.id, game.publishers, PATH_PUBLISHERS, GamesPublishers.PUBLISHER_ID, existingPublisherIds[game.id].orEmpty()))
+            batch.addAll(createAssociationBatch(game.id, game.categories, PATH_CATEGORIES, GamesCategories.CATEGORY_ID, existingCategoryIds[game.id].orEmpty()))
+            batch.addAll(createAssociationBatch(game.id, game.mechanics, PATH_MECHANICS, GamesMechanics.MECHANIC_ID, existingMechanicIds[game.id].orEmpty()))
+        }
+
+        return try {
+            resolver.applyBatch(batch, "Games ${gamesToSave.joinToString { it.id.toString() }}")
+            Timber.i("Saved %,d games", gamesToSave.size)
+            gamesToSave.size
         } catch (e: Exception) {
-            NotificationUtils.showPersistErrorNotification(context, e)
+            if (gamesToSave.size == 1) {
+                NotificationUtils.showPersistErrorNotification(context, e)
+                0
+            } else {
+                // one bad game shouldn't cost the rest of the page
+                Timber.w(e, "Saving %,d games failed; saving them one at a time", gamesToSave.size)
+                gamesToSave.sumBy { save(listOf(it), updateTime) }
+            }
         }
     }
 
@@ -569,23 +612,13 @@ class GameDao(private val context: BggApplication) {
         return values
     }
 
-    private fun shouldClearHeroImageUrl(game: GameEntity): Boolean {
-        val cursor = resolver.query(Games.buildGameUri(game.id), arrayOf(Games.IMAGE_URL, Games.THUMBNAIL_URL), null, null, null)
-        cursor?.use { c ->
-            if (c.moveToFirst()) {
-                val imageUrl = c.getStringOrNull(0) ?: ""
-                val thumbnailUrl = c.getStringOrNull(1) ?: ""
-                if (imageUrl != game.imageUrl || thumbnailUrl != game.thumbnailUrl) {
-                    return true
-                }
-            }
-        }
-        return false
-    }
-
-    private fun createPollsBatch(game: GameEntity): ArrayList<ContentProviderOperation> {
+    /**
+     * @param existingPolls the game's saved polls, keyed by name, mapping each poll's results (keyed by player count)
+     * to the keys of its result rows
+     */
+    private fun createPollsBatch(game: GameEntity, existingPolls: Map<String, Map<String, List<String>>>): ArrayList<ContentProviderOperation> {
         val batch = arrayListOf<ContentProviderOperation>()
-        val existingPollNames = resolver.queryStrings(Games.buildPollsUri(game.id), GamePolls.POLL_NAME).filterNotNull().toMutableList()
+        val existingPollNames = existingPolls.keys.toMutableList()
         for (poll in game.polls) {
             val values = ContentValues()
             values.put(GamePolls.POLL_TITLE, poll.title)
@@ -594,7 +627,7 @@ class GameDao(private val context: BggApplication) {
             var existingResultKeys = mutableListOf<String>()
             if (existingPollNames.remove(poll.name)) {
                 batch.add(ContentProviderOperation.newUpdate(Games.buildPollsUri(game.id, poll.name)).withValues(values).build())
-                existingResultKeys = resolver.queryStrings(Games.buildPollResultsUri(game.id, poll.name), GamePollResults.POLL_RESULTS_PLAYERS).filterNotNull().toMutableList()
+                existingResultKeys = existingPolls[poll.name].orEmpty().keys.toMutableList()
             } else {
                 values.put(GamePolls.POLL_NAME, poll.name)
                 batch.add(ContentProviderOperation.newInsert(Games.buildPollsUri(game.id)).withValues(values).build())
@@ -609,11 +642,7 @@ class GameDao(private val context: BggApplication) {
                     batch.add(ContentProviderOperation
                             .newUpdate(Games.buildPollResultsUri(game.id, poll.name, results.key))
                             .withValues(values).build())
-                    existingValues = resolver.queryStrings(
-                            Games.buildPollResultsResultUri(game.id, poll.name, results.key),
-                            GamePollResultsResult.POLL_RESULTS_RESULT_KEY)
-                            .filterNotNull()
-                            .toMutableList()
+                    existingValues = existingPolls[poll.name]?.get(results.key).orEmpty().toMutableList()
                 } else {
                     values.put(GamePollResults.POLL_RESULTS_PLAYERS, results.key)
                     batch.add(ContentProviderOperation.newInsert(Games.buildPollResultsUri(game.id, poll.name)).withValues(values).build())
@@ -655,10 +684,10 @@ class GameDao(private val context: BggApplication) {
         return batch
     }
 
-    private fun createPlayerPollBatch(gameId: Int, poll: GamePlayerPollEntity?): ArrayList<ContentProviderOperation> {
+    private fun createPlayerPollBatch(gameId: Int, poll: GamePlayerPollEntity?, existingPlayerCounts: List<String>): ArrayList<ContentProviderOperation> {
         if (poll == null) return ArrayList()
         val batch = arrayListOf<ContentProviderOperation>()
-        val existingResults = resolver.queryStrings(Games.buildSuggestedPlayerCountPollResultsUri(gameId), GameSuggestedPlayerCountPollPollResults.PLAYER_COUNT).filterNotNull().toMutableList()
+        val existingResults = existingPlayerCounts.toMutableList()
         for ((sortIndex, results) in poll.results.withIndex()) {
             val values = contentValuesOf(
                     GameSuggestedPlayerCountPollPollResults.SORT_INDEX to sortIndex + 1,
@@ -683,9 +712,9 @@ class GameDao(private val context: BggApplication) {
         return batch
     }
 
-    private fun createRanksBatch(game: GameEntity): ArrayList<ContentProviderOperation> {
+    private fun createRanksBatch(game: GameEntity, existingIds: List<Int>): ArrayList<ContentProviderOperation> {
         val batch = arrayListOf<ContentProviderOperation>()
-        val existingRankIds = resolver.queryInts(GameRanks.CONTENT_URI, GameRanks.GAME_RANK_ID, "${GameRanks.GAME_RANK_ID}=?", arrayOf(game.id.toString())).toMutableList()
+        val existingRankIds = existingIds.toMutableList()
         for ((id, type, name, friendlyName, value, bayesAverage) in game.ranks) {
             val values = ContentValues()
             values.put(GameRanks.GAME_RANK_TYPE, type)
@@ -707,10 +736,10 @@ class GameDao(private val context: BggApplication) {
         return batch
     }
 
-    private fun createExpansionsBatch(gameId: Int, newLinks: List<Triple<Int, String, Boolean>>): ArrayList<ContentProviderOperation> {
+    private fun createExpansionsBatch(gameId: Int, newLinks: List<Triple<Int, String, Boolean>>, existingExpansionIds: List<Int>): ArrayList<ContentProviderOperation> {
         val batch = arrayListOf<ContentProviderOperation>()
         val pathUri = Games.buildPathUri(gameId, PATH_EXPANSIONS)
-        val existingIds = resolver.queryInts(pathUri, GamesExpansions.EXPANSION_ID).toMutableList()
+        val existingIds = existingExpansionIds.toMutableList()
 
         for ((id, name, inbound) in newLinks) {
             if (!existingIds.remove(id)) {
@@ -729,26 +758,102 @@ class GameDao(private val context: BggApplication) {
         return batch
     }
 
-    private fun saveReference(newLinks: List<Pair<Int, String>>, baseUri: Uri, idColumn: String, nameColumn: String) {
-        val batch = arrayListOf<ContentProviderOperation>()
-        for ((id, name) in newLinks) {
-            val uri = baseUri.buildUpon().appendPath(id.toString()).build()
-            if (resolver.rowExists(uri)) {
-                batch.add(ContentProviderOperation.newUpdate(uri).withValue(nameColumn, name).build())
-            } else {
-                val cv = ContentValues(2)
-                cv.put(idColumn, id)
-                cv.put(nameColumn, name)
-                batch.add(ContentProviderOperation.newInsert(baseUri).withValues(cv).build())
+    /**
+     * Upserts the rows of a reference table (e.g. designers) linked to by the games in a batch. Which rows exist is
+     * looked up once for all of the links; each row is written once, by the first game that links to it.
+     */
+    private inner class ReferenceTable(allLinks: List<Pair<Int, String>>, private val baseUri: Uri, private val idColumn: String, private val nameColumn: String) {
+        private val existingIds = findExistingIds(allLinks.map { it.first }, baseUri, idColumn)
+        private val savedIds = mutableSetOf<Int>()
+
+        fun createBatch(newLinks: List<Pair<Int, String>>): ArrayList<ContentProviderOperation> {
+            val batch = arrayListOf<ContentProviderOperation>()
+            for ((id, name) in newLinks) {
+                if (!savedIds.add(id)) continue
+                if (existingIds.contains(id)) {
+                    val uri = baseUri.buildUpon().appendPath(id.toString()).build()
+                    batch.add(ContentProviderOperation.newUpdate(uri).withValue(nameColumn, name).build())
+                } else {
+                    val cv = ContentValues(2)
+                    cv.put(idColumn, id)
+                    cv.put(nameColumn, name)
+                    batch.add(ContentProviderOperation.newInsert(baseUri).withValues(cv).build())
+                }
+            }
+            return batch
+        }
+    }
+
+    private fun findExistingIds(ids: List<Int>, uri: Uri, idColumn: String): Set<Int> {
+        val existingIds = mutableSetOf<Int>()
+        ids.distinct().chunked(IN_CLAUSE_CHUNK_SIZE).forEach { chunk ->
+            existingIds += resolver.queryInts(uri, idColumn, "$idColumn IN (${chunk.joinToString(",")})")
+        }
+        return existingIds
+    }
+
+    private fun buildGamesPathUri(path: String): Uri = Games.CONTENT_URI.buildUpon().appendPath(path).build()
+
+    /**
+     * Queries the rows of [uri] belonging to any of the games, [IN_CLAUSE_CHUNK_SIZE] games at a time. The first
+     * column of the projection must be the game ID.
+     */
+    private fun queryByGameIds(gameIds: List<Int>, uri: Uri, projection: Array<String>, action: (Cursor) -> Unit) {
+        gameIds.distinct().chunked(IN_CLAUSE_CHUNK_SIZE).forEach { chunk ->
+            resolver.query(uri, projection, "${projection[0]} IN (${chunk.joinToString(",")})", null, null)?.use {
+                while (it.moveToNext()) action(it)
             }
         }
-        resolver.applyBatch(batch, "Saving ${baseUri.lastPathSegment}")
     }
 
-    private fun createAssociationBatch(gameId: Int, newLinks: List<Pair<Int, String>>, uriPath: String, idColumn: String): ArrayList<ContentProviderOperation> {
+    /**
+     * Returns the image and thumbnail URLs of the games that are already saved, keyed by game ID.
+     */
+    private fun findExistingImageUrls(gameIds: List<Int>): Map<Int, Pair<String, String>> {
+        val imageUrls = mutableMapOf<Int, Pair<String, String>>()
+        queryByGameIds(gameIds, Games.CONTENT_URI, arrayOf("games.${Games.GAME_ID}", Games.IMAGE_URL, Games.THUMBNAIL_URL)) {
+            imageUrls[it.getInt(0)] = (it.getStringOrNull(1) ?: "") to (it.getStringOrNull(2) ?: "")
+        }
+        return imageUrls
+    }
+
+    private fun findExistingChildIds(gameIds: List<Int>, uri: Uri, gameIdColumn: String, idColumn: String): Map<Int, List<Int>> {
+        val ids = mutableMapOf<Int, MutableList<Int>>()
+        queryByGameIds(gameIds, uri, arrayOf(gameIdColumn, idColumn)) {
+            ids.getOrPut(it.getInt(0)) { mutableListOf() } += it.getInt(1)
+        }
+        return ids
+    }
+
+    private fun findExistingChildKeys(gameIds: List<Int>, uri: Uri, gameIdColumn: String, keyColumn: String): Map<Int, List<String>> {
+        val keys = mutableMapOf<Int, MutableList<String>>()
+        queryByGameIds(gameIds, uri, arrayOf(gameIdColumn, keyColumn)) {
+            it.getStringOrNull(1)?.let { key -> keys.getOrPut(it.getInt(0)) { mutableListOf() } += key }
+        }
+        return keys
+    }
+
+    /**
+     * Returns the saved polls of the games, keyed by game ID then poll name, mapping each poll's results (keyed by
+     * player count) to the keys of its result rows.
+     */
+    private fun findExistingPolls(gameIds: List<Int>): Map<Int, Map<String, Map<String, List<String>>>> {
+        val polls = mutableMapOf<Int, MutableMap<String, MutableMap<String, MutableList<String>>>>()
+        val projection = arrayOf(GamePolls.GAME_ID, GamePolls.POLL_NAME, GamePollResults.POLL_RESULTS_PLAYERS, GamePollResultsResult.POLL_RESULTS_RESULT_KEY)
+        queryByGameIds(gameIds, GamePollResultsResult.CONTENT_URI, projection) {
+            val pollName = it.getStringOrNull(1) ?: return@queryByGameIds
+            val results = polls.getOrPut(it.getInt(0)) { mutableMapOf() }.getOrPut(pollName) { mutableMapOf() }
+            val players = it.getStringOrNull(2) ?: return@queryByGameIds
+            val resultKeys = results.getOrPut(players) { mutableListOf() }
+            it.getStringOrNull(3)?.let { key -> resultKeys += key }
+        }
+        return polls
+    }
+
+    private fun createAssociationBatch(gameId: Int, newLinks: List<Pair<Int, String>>, uriPath: String, idColumn: String, existingAssociationIds: List<Int>): ArrayList<ContentProviderOperation> {
         val batch = arrayListOf<ContentProviderOperation>()
         val associationUri = Games.buildPathUri(gameId, uriPath)
-        val existingIds = resolver.queryInts(associationUri, idColumn).toMutableList()
+        val existingIds = existingAssociationIds.toMutableList()
         for ((id, _) in newLinks) {
             if (!existingIds.remove(id)) {
                 // insert association row
@@ -761,4 +866,8 @@ class GameDao(private val context: BggApplication) {
         }
         return batch
     }
+
+    companion object {
+        private const val IN_CLAUSE_CHUNK_SIZE = 500
+    }
 }
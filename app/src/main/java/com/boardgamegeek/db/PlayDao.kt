@@ -9,6 +9,8 @@ import androidx.core.database.getIntOrNull
 import androidx.core.database.getLongOrNull
 import androidx.core.database.getStringOrNull
 import androidx.lifecycle.LiveData
+import androidx.paging.LivePagedListBuilder
+import androidx.paging.PagedList
 import com.boardgamegeek.BggApplication
 import com.boardgamegeek.auth.AccountUtils
 import com.boardgamegeek.entities.*
@@ -21,6 +23,7 @@ import com.boardgamegeek.extensions.getBoolean
 import com.boardgamegeek.extensions.joinTo
 import com.boardgamegeek.extensions.load
 import com.boardgamegeek.extensions.queryCount
+import com.boardgamegeek.extensions.queryInts
 import com.boardgamegeek.extensions.queryLongs
 import com.boardgamegeek.extensions.queryString
 import com.boardgamegeek.extensions.queryStrings
@@ -28,6 +31,7 @@ import com.boardgamegeek.extensions.rowExists
 import com.boardgamegeek.extensions.whereEqualsOrNull
 import com.boardgamegeek.extensions.whereZeroOrNull
 import com.boardgamegeek.livedata.AbsentLiveData
+import com.boardgamegeek.livedata.PlaysDataSource
 import com.boardgamegeek.livedata.RegisteredLiveData
 import com.boardgamegeek.provider.BggContract.*
 import kotlinx.coroutines.Dispatchers
@@ -152,6 +156,126 @@ class PlayDao(private val context: BggApplication) {
         }
     }
 
+    /**
+     * Plays are read a page at a time as the list is scrolled, rather than all at once, so memory stays flat as the
+     * play history grows. The list is rebuilt around the current position whenever plays change.
+     */
+    fun loadPagedPlays(sortBy: PlaysSortBy): LiveData<PagedList<PlayEntity>> {
+        val config = PagedList.Config.Builder()
+                .setPageSize(PAGE_SIZE)
+                .setInitialLoadSizeHint(PAGE_SIZE * 2)
+                .setPrefetchDistance(PAGE_SIZE / 2)
+                .setEnablePlaceholders(false)
+                .build()
+        return LivePagedListBuilder(PlaysDataSource.Factory(context, this, sortBy), config).build()
+    }
+
+    fun loadPlayCount(): LiveData<Int> {
+        val uri = Plays.CONTENT_URI
+        return RegisteredLiveData(context, uri, true) {
+            val selection = createPlaySelectionAndArgs()
+            return@RegisteredLiveData context.contentResolver.load(uri, arrayOf(Plays.SUM_QUANTITY), selection.first, selection.second)?.use {
+                if (it.moveToFirst()) it.getInt(0) else 0
+            } ?: 0
+        }
+    }
+
+    /**
+     * Loads up to [limit] plays that sort after the [key] play (or before it, when [isBefore]), in the order of [sortBy]
+     * with the internal ID breaking ties. The key play itself leads the page when [includeKey] is set. Seeking on the
+     * key instead of skipping an offset means a page deep in the history costs no more than the first.
+     */
+    fun loadPlaysPage(sortBy: PlaysSortBy, key: PlayEntity?, isBefore: Boolean, limit: Int, includeKey: Boolean = false): List<PlayEntity> {
+        val (column, isAscending) = when (sortBy) {
+            PlaysSortBy.DATE -> "plays.${Plays.DATE}" to false
+            PlaysSortBy.LOCATION -> "IFNULL(plays.${Plays.LOCATION},'')" to true
+            PlaysSortBy.GAME -> "plays.${Plays.ITEM_NAME}" to true
+            PlaysSortBy.LENGTH -> "IFNULL(plays.${Plays.LENGTH},0)" to false
+        }
+        val id = "plays.${Plays._ID}"
+        val isForward = isAscending != isBefore
+
+        var selection = createPlaySelectionAndArgs()
+        if (key != null) {
+            val operator = if (isForward) ">" else "<"
+            val (value, args) = when (sortBy) {
+                PlaysSortBy.DATE -> "?" to arrayOf(key.dateForDatabase(), key.dateForDatabase())
+                PlaysSortBy.LOCATION -> "?" to arrayOf(key.location, key.location)
+                PlaysSortBy.GAME -> "?" to arrayOf(key.gameName, key.gameName)
+                PlaysSortBy.LENGTH -> key.length.toString() to emptyArray<String>() // an expression has no affinity, so compare with an integer literal
+            }
+            val idOperator = if (includeKey) "$operator=" else operator
+            selection = "(${selection.first}) AND ($column$operator$value OR ($column=$value AND $id$idOperator${key.internalId}))" to args
+        }
+        val direction = if (isForward) "ASC" else "DESC"
+        val uri = Plays.CONTENT_URI.buildUpon().appendQueryParameter(QUERY_KEY_LIMIT, limit.toString()).build()
+        val plays = loadPlays(uri, selection, "$column $direction, $id $direction")
+        return if (isBefore) plays.asReversed() else plays
+    }
+
+    /**
+     * Loads the plays, with their players, that come after the play with the internal ID in the order they were
+     * inserted. Used to walk the whole history a page at a time, e.g. for a backup.
+     */
+    fun loadPlaysWithPlayersAfter(internalId: Long, limit: Int): List<PlayEntity> {
+        val id = "plays.${Plays._ID}"
+        val selection = createPlaySelectionAndArgs().let { (selection, args) ->
+            "($selection) AND $id>?" to args + internalId.toString()
+        }
+        val uri = Plays.CONTENT_URI.buildUpon().appendQueryParameter(QUERY_KEY_LIMIT, limit.toString()).build()
+        val plays = loadPlays(uri, selection, "$id ASC")
+        if (plays.isEmpty()) return plays
+
+        val playsById = plays.associateBy { it.internalId }
+        context.contentResolver.load(
+                Plays.buildPlayersUri(),
+                arrayOf(
+                        PlayPlayers._PLAY_ID,
+                        PlayPlayers.NAME,
+                        PlayPlayers.USER_NAME,
+                        PlayPlayers.START_POSITION,
+                        PlayPlayers.COLOR,
+                        PlayPlayers.SCORE,
+                        PlayPlayers.RATING,
+                        PlayPlayers.USER_ID,
+                        PlayPlayers.NEW,
+                        PlayPlayers.WIN,
+                ),
+                "${PlayPlayers._PLAY_ID} IN (${playsById.keys.joinToString(",")})",
+                null,
+                "${PlayPlayers._PLAY_ID} ASC, play_players.${PlayPlayers._ID} ASC"
+        )?.use {
+            while (it.moveToNext()) {
+                playsById[it.getLong(0)]?.addPlayer(PlayPlayerEntity(
+                        name = it.getStringOrNull(1).orEmpty(),
+                        username = it.getStringOrNull(2).orEmpty(),
+                        startingPosition = it.getStringOrNull(3).orEmpty(),
+                        color = it.getStringOrNull(4).orEmpty(),
+                        score = it.getStringOrNull(5).orEmpty(),
+                        rating = it.getDoubleOrNull(6) ?: 0.0,
+                        userId = it.getIntOrNull(7),
+                        isNew = it.getBoolean(8),
+                        isWin = it.getBoolean(9),
+                ))
+            }
+        }
+        return plays
+    }
+
+    /**
+     * Loads the most recent plays that aren't being edited, reading no more than [limit] of them.
+     */
+    fun loadRecentPlays(limit: Int): LiveData<List<PlayEntity>> {
+        val uri = Plays.CONTENT_URI
+        return RegisteredLiveData(context, uri, true) {
+            val selection = createPlaySelectionAndArgs().let { (selection, args) ->
+                "($selection) AND (${Plays.DIRTY_TIMESTAMP.whereZeroOrNull()})" to args
+            }
+            val limitedUri = uri.buildUpon().appendQueryParameter(QUERY_KEY_LIMIT, limit.toString()).build()
+            return@RegisteredLiveData loadPlays(limitedUri, selection)
+        }
+    }
+
     fun loadPendingPlays(): LiveData<List<PlayEntity>> {
         val uri = Plays.CONTENT_URI
         return RegisteredLiveData(context, uri, true) {
@@ -205,13 +329,17 @@ class PlayDao(private val context: BggApplication) {
     }
 
     private fun loadPlays(uri: Uri, selection: Pair<String?, Array<String>?>, sortBy: PlaysSortBy = PlaysSortBy.DATE): ArrayList<PlayEntity> {
-        val list = arrayListOf<PlayEntity>()
         val sortOrder = when (sortBy) {
             PlaysSortBy.DATE -> ""
             PlaysSortBy.LOCATION -> Plays.LOCATION.ascending()
             PlaysSortBy.GAME -> Plays.ITEM_NAME.ascending()
             PlaysSortBy.LENGTH -> Plays.LENGTH.descending()
         }
+        return loadPlays(uri, selection, sortOrder)
+    }
+
+    private fun loadPlays(uri: Uri, selection: Pair<String?, Array<String>?>, sortOrder: String): ArrayList<PlayEntity> {
+        val list = arrayListOf<PlayEntity>()
         context.contentResolver.load(uri,
                 arrayOf(
                         Plays._ID,
@@ -593,45 +721,141 @@ class PlayDao(private val context: BggApplication) {
         }
     }
 
+    /**
+     * Saves a page of synced plays: their sync candidates and referenced games are looked up with one query each, and
+     * every change is applied in a single batch.
+     */
     fun save(plays: List<PlayEntity>, startTime: Long) {
         var updateCount = 0
         var insertCount = 0
         var unchangedCount = 0
         var dirtyCount = 0
         var errorCount = 0
+        val candidates = PlaySyncCandidate.findAll(context.contentResolver, plays.map { it.playId })
+        val batchState = BatchState(findExistingGameIds(plays.map { it.gameId }))
+        val batch = arrayListOf<ContentProviderOperation>()
         for (play: PlayEntity in plays) {
-            //val play = p.copy(syncTimestamp = startTime)
-            val candidate = PlaySyncCandidate.find(context.contentResolver, play.playId)
+            val candidate = candidates[play.playId] ?: PlaySyncCandidate()
             when {
                 !play.isSynced -> {
                     Timber.i("Can't sync a play without a play ID.")
                     errorCount++
                 }
                 candidate.internalId == INVALID_ID.toLong() -> {
-                    save(play, INVALID_ID.toLong())
-                    insertCount++
+                    if (addPlayToBatch(play, INVALID_ID.toLong(), batch, batchState)) insertCount++
                 }
                 candidate.isDirty -> {
                     Timber.i("Not saving during the sync; local play is modified.")
                     dirtyCount++
                 }
                 candidate.syncHashCode == play.generateSyncHashCode() -> {
-                    context.contentResolver.update(Plays.buildPlayUri(candidate.internalId), contentValuesOf(Plays.SYNC_TIMESTAMP to startTime), null, null)
+                    batch.add(ContentProviderOperation
+                            .newUpdate(Plays.buildPlayUri(candidate.internalId))
+                            .withValue(Plays.SYNC_TIMESTAMP, startTime)
+                            .withYieldAllowed(true)
+                            .build())
                     unchangedCount++
                 }
                 else -> {
-                    save(play, candidate.internalId)
+                    addPlayToBatch(play, candidate.internalId, batch, batchState)
                     updateCount++
                 }
             }
         }
+        context.contentResolver.applyBatch(batch, "Saving ${plays.size} plays")
 
         Timber.i("Updated %1$,d, inserted %2$,d, %3$,d unchanged, %4$,d dirty, %5$,d", updateCount, insertCount, unchangedCount, dirtyCount, errorCount)
     }
 
+    /**
+     * Restores plays from a backup in a single batch. A synced play replaces the local copy with the same play ID,
+     * unless that copy has local changes. A play that was never synced replaces the local unsynced play with the same
+     * date, game, start time, and update timestamp, so restoring the same backup twice doesn't duplicate it; otherwise
+     * it's inserted.
+     *
+     * @return the number of plays restored
+     */
+    fun restore(plays: List<PlayEntity>): Int {
+        val candidates = PlaySyncCandidate.findAll(context.contentResolver, plays.map { it.playId })
+        val unsyncedPlayIds = if (plays.any { !it.isSynced }) findUnsyncedPlayIds() else mutableMapOf<UnsyncedPlayKey, Long>()
+        val batchState = BatchState(findExistingGameIds(plays.map { it.gameId }))
+        val batch = arrayListOf<ContentProviderOperation>()
+        var restoredCount = 0
+        for (play in plays) {
+            val internalId = if (play.isSynced) {
+                val candidate = candidates[play.playId]
+                if (candidate?.isDirty == true) {
+                    Timber.i("Not restoring play ID=%s; local play is modified.", play.playId)
+                    continue
+                }
+                candidate?.internalId
+            } else {
+                unsyncedPlayIds.remove(UnsyncedPlayKey.from(play))
+            }
+            if (addPlayToBatch(play, internalId ?: INVALID_ID.toLong(), batch, batchState)) restoredCount++
+        }
+        context.contentResolver.applyBatch(batch, "Restoring ${plays.size} plays")
+        return restoredCount
+    }
+
     fun save(play: PlayEntity, internalId: Long = play.internalId): Long {
         val batch = arrayListOf<ContentProviderOperation>()
+        if (!addPlayToBatch(play, internalId, batch, BatchState(findExistingGameIds(listOf(play.gameId))))) {
+            return INVALID_ID.toLong()
+        }
+
+        val results = context.contentResolver.applyBatch(batch)
+        var insertedId = internalId
+        if (insertedId == INVALID_ID.toLong() && results.isNotEmpty()) {
+            insertedId = results.getOrNull(0)?.uri?.lastPathSegment?.toLong() ?: INVALID_ID.toLong()
+        }
+        Timber.i("Saved play _ID=$insertedId")
+        return insertedId
+    }
+
+    /**
+     * Identifies a play that hasn't been synced, and so has no play ID, across a backup and restore.
+     */
+    private data class UnsyncedPlayKey(val date: String, val gameId: Int, val startTime: Long, val updateTimestamp: Long) {
+        companion object {
+            fun from(play: PlayEntity) = UnsyncedPlayKey(
+                    play.dateForDatabase(),
+                    play.gameId,
+                    if (play.length > 0) 0 else play.startTime,
+                    play.updateTimestamp)
+        }
+    }
+
+    /**
+     * Returns the internal IDs of the plays that haven't been synced, mapped by their [UnsyncedPlayKey].
+     */
+    private fun findUnsyncedPlayIds(): MutableMap<UnsyncedPlayKey, Long> {
+        val ids = mutableMapOf<UnsyncedPlayKey, Long>()
+        context.contentResolver.query(Plays.CONTENT_URI,
+                arrayOf(Plays._ID, Plays.DATE, Plays.OBJECT_ID, Plays.START_TIME, Plays.UPDATE_TIMESTAMP),
+                Plays.PLAY_ID.whereZeroOrNull(),
+                null,
+                null)?.use {
+            while (it.moveToNext()) {
+                val key = UnsyncedPlayKey(it.getStringOrNull(1).orEmpty(), it.getInt(2), it.getLongOrNull(3) ?: 0L, it.getLongOrNull(4) ?: 0L)
+                ids.getOrPut(key) { it.getLong(0) }
+            }
+        }
+        return ids
+    }
 
+    /**
+     * What's known, or about to be written, across the plays saved in one batch.
+     */
+    private class BatchState(val existingGameIds: Set<Int>) {
+        val savedColors = mutableSetOf<Pair<Int, String>>()
+        val nicknamedBuddies = mutableSetOf<String>()
+    }
+
+    /**
+     * @return false if the play wasn't added, as it's a deleted play that isn't in the database.
+     */
+    private fun addPlayToBatch(play: PlayEntity, internalId: Long, batch: ArrayList<ContentProviderOperation>, batchState: BatchState): Boolean {
         val values = contentValuesOf(
                 Plays.PLAY_ID to play.playId,
                 Plays.DATE to play.dateForDatabase(),
@@ -652,44 +876,51 @@ class PlayDao(private val context: BggApplication) {
                 Plays.DIRTY_TIMESTAMP to play.dirtyTimestamp
         )
 
+        val playIndex = batch.size
         when {
             internalId != INVALID_ID.toLong() -> {
                 batch.add(ContentProviderOperation
                         .newUpdate(Plays.buildPlayUri(internalId))
                         .withValues(values)
+                        .withYieldAllowed(true)
                         .build())
             }
             play.deleteTimestamp > 0 -> {
                 Timber.i("Skipping inserting a deleted play")
-                return INVALID_ID.toLong()
+                return false
             }
             else -> {
                 batch.add(ContentProviderOperation
                         .newInsert(Plays.CONTENT_URI)
                         .withValues(values)
+                        .withYieldAllowed(true)
                         .build())
             }
         }
 
         deletePlayerWithEmptyUserNameInBatch(internalId, batch)
         val existingPlayerIds = removeDuplicateUserNamesFromBatch(internalId, batch).toMutableList()
-        addPlayersToBatch(play, existingPlayerIds, internalId, batch)
+        addPlayersToBatch(play, existingPlayerIds, internalId, playIndex, batch)
         removeUnusedPlayersFromBatch(internalId, existingPlayerIds, batch)
 
         if (play.isSynced || play.updateTimestamp > 0) {
             // Do these when a new play is ready to be synced
-            saveGamePlayerSortOrderToBatch(play, batch)
-            updateColorsInBatch(play, batch)
-            saveBuddyNicknamesToBatch(play, batch)
+            saveGamePlayerSortOrderToBatch(play, batch, batchState)
+            updateColorsInBatch(play, batch, batchState)
+            saveBuddyNicknamesToBatch(play, batch, batchState)
         }
+        return true
+    }
 
-        val results = context.contentResolver.applyBatch(batch)
-        var insertedId = internalId
-        if (insertedId == INVALID_ID.toLong() && results.isNotEmpty()) {
-            insertedId = results.getOrNull(0)?.uri?.lastPathSegment?.toLong() ?: INVALID_ID.toLong()
+    private fun findExistingGameIds(gameIds: List<Int>): Set<Int> {
+        val existingIds = mutableSetOf<Int>()
+        gameIds.filter { it != INVALID_ID }.distinct().chunked(IN_CLAUSE_CHUNK_SIZE).forEach { chunk ->
+            existingIds += context.contentResolver.queryInts(
+                    Games.CONTENT_URI,
+                    Games.GAME_ID,
+                    "games.${Games.GAME_ID} IN (${chunk.joinToString(",")})")
         }
-        Timber.i("Saved play _ID=$insertedId")
-        return insertedId
+        return existingIds
     }
 
     private fun deletePlayerWithEmptyUserNameInBatch(internalId: Long, batch: ArrayList<ContentProviderOperation>) {
@@ -726,7 +957,7 @@ class PlayDao(private val context: BggApplication) {
         return uniqueUserNames
     }
 
-    private fun addPlayersToBatch(play: PlayEntity, playerUserNames: MutableList<String>, internalId: Long, batch: ArrayList<ContentProviderOperation>) {
+    private fun addPlayersToBatch(play: PlayEntity, playerUserNames: MutableList<String>, internalId: Long, playIndex: Int, batch: ArrayList<ContentProviderOperation>) {
         for (player in play.players) {
             val userName = player.username
             val values = contentValuesOf(
@@ -749,7 +980,7 @@ class PlayDao(private val context: BggApplication) {
                 if (internalId == INVALID_ID.toLong()) {
                     batch.add(ContentProviderOperation
                             .newInsert(Plays.buildPlayerUri())
-                            .withValueBackReference(PlayPlayers._PLAY_ID, 0)
+                            .withValueBackReference(PlayPlayers._PLAY_ID, playIndex)
                             .withValues(values)
                             .build())
                 } else {
@@ -775,16 +1006,15 @@ class PlayDao(private val context: BggApplication) {
     /**
      * Determine if the players are custom sorted or not, and save it to the game.
      */
-    private fun saveGamePlayerSortOrderToBatch(play: PlayEntity, batch: ArrayList<ContentProviderOperation>) {
+    private fun saveGamePlayerSortOrderToBatch(play: PlayEntity, batch: ArrayList<ContentProviderOperation>, batchState: BatchState) {
         // We can't determine the sort order without players
         if (play.playerCount == 0) return
 
         // We can't save the sort order if we aren't storing the game
-        val gameUri = Games.buildGameUri(play.gameId)
-        if (!context.contentResolver.rowExists(gameUri)) return
+        if (!batchState.existingGameIds.contains(play.gameId)) return
 
         batch.add(ContentProviderOperation
-                .newUpdate(gameUri)
+                .newUpdate(Games.buildGameUri(play.gameId))
                 .withValue(Games.CUSTOM_PLAYER_SORT, play.arePlayersCustomSorted())
                 .build())
     }
@@ -792,16 +1022,17 @@ class PlayDao(private val context: BggApplication) {
     /**
      * Add the current players' team/colors to the permanent list for the game.
      */
-    private fun updateColorsInBatch(play: PlayEntity, batch: ArrayList<ContentProviderOperation>) {
+    private fun updateColorsInBatch(play: PlayEntity, batch: ArrayList<ContentProviderOperation>, batchState: BatchState) {
         // There are no players, so there are no colors to save
         if (play.playerCount == 0) return
 
         // We can't save the colors if we aren't storing the game
-        if (!context.contentResolver.rowExists(Games.buildGameUri(play.gameId))) return
+        if (!batchState.existingGameIds.contains(play.gameId)) return
 
         val insertUri = Games.buildColorsUri(play.gameId)
         play.players.filter { !it.color.isNullOrBlank() }.distinctBy { it.color }.forEach {
-            if (!context.contentResolver.rowExists(Games.buildColorsUri(play.gameId, it.color))) {
+            if (batchState.savedColors.add(play.gameId to it.color) &&
+                    !context.contentResolver.rowExists(Games.buildColorsUri(play.gameId, it.color))) {
                 batch.add(ContentProviderOperation
                         .newInsert(insertUri)
                         .withValue(GameColors.COLOR, it.color)
@@ -813,9 +1044,9 @@ class PlayDao(private val context: BggApplication) {
     /**
      * Update GeekBuddies' nicknames with the names used here.
      */
-    private fun saveBuddyNicknamesToBatch(play: PlayEntity, batch: ArrayList<ContentProviderOperation>) {
+    private fun saveBuddyNicknamesToBatch(play: PlayEntity, batch: ArrayList<ContentProviderOperation>, batchState: BatchState) {
         play.players.forEach { player ->
-            if (player.username.isNotBlank() && player.name.isNotBlank()) {
+            if (player.username.isNotBlank() && player.name.isNotBlank() && batchState.nicknamedBuddies.add(player.username)) {
                 val uri = Buddies.buildBuddyUri(player.username)
                 if (context.contentResolver.rowExists(uri)) {
                     val nickname = context.contentResolver.queryString(uri, Buddies.PLAY_NICKNAME)
@@ -1103,6 +1334,46 @@ class PlayDao(private val context: BggApplication) {
                     }
                 } ?: PlaySyncCandidate()
             }
+
+            /**
+             * Finds the candidates for all of the play IDs at once, mapped by play ID. Play IDs without a candidate
+             * are absent.
+             */
+            fun findAll(resolver: ContentResolver, playIds: List<Int>): Map<Int, PlaySyncCandidate> {
+                val candidates = mutableMapOf<Int, PlaySyncCandidate>()
+                playIds.filter { it > 0 }.distinct().chunked(IN_CLAUSE_CHUNK_SIZE).forEach { chunk ->
+                    resolver.query(Plays.CONTENT_URI,
+                            arrayOf(
+                                    Plays.PLAY_ID,
+                                    Plays._ID,
+                                    Plays.SYNC_HASH_CODE,
+                                    Plays.DELETE_TIMESTAMP,
+                                    Plays.UPDATE_TIMESTAMP,
+                                    Plays.DIRTY_TIMESTAMP
+                            ),
+                            "${Plays.PLAY_ID} IN (${chunk.joinToString(",")})",
+                            null,
+                            null)?.use {
+                        while (it.moveToNext()) {
+                            candidates.getOrPut(it.getInt(0)) {
+                                PlaySyncCandidate(
+                                        internalId = it.getLongOrNull(1) ?: INVALID_ID.toLong(),
+                                        syncHashCode = it.getIntOrNull(2) ?: 0,
+                                        deleteTimestamp = it.getLongOrNull(3) ?: 0L,
+                                        updateTimestamp = it.getLongOrNull(4) ?: 0L,
+                                        dirtyTimestamp = it.getLongOrNull(5) ?: 0L,
+                                )
+                            }
+                        }
+                    }
+                }
+                return candidates
+            }
         }
     }
+
+    companion object {
+        private const val PAGE_SIZE = 50
+        private const val IN_CLAUSE_CHUNK_SIZE = 500
+    }
 }
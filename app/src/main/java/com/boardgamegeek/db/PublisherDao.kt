@@ -1,5 +1,6 @@
 package com.boardgamegeek.db
 
+import android.content.ContentProviderOperation
 import android.content.ContentValues
 import androidx.core.content.contentValuesOf
 import androidx.lifecycle.LiveData
@@ -128,15 +129,31 @@ class PublisherDao(private val context: BggApplication) {
         }
     }
 
-    fun loadCollection(id: Int): List<BriefGameEntity> {
-        val uri = Publishers.buildCollectionUri(id)
-        return collectionDao.loadLinkedCollection(uri)
+    /**
+     * Loads the linked collection of every publisher, keyed by publisher ID.
+     */
+    fun loadCollections(): Map<Int, List<BriefGameEntity>> {
+        return collectionDao.loadLinkedCollections(Publishers.CONTENT_COLLECTION_URI, Publishers.PUBLISHER_ID)
     }
 
     fun update(publisherId: Int, values: ContentValues): Int {
         return context.contentResolver.update(Publishers.buildPublisherUri(publisherId), values, null, null)
     }
 
+    /**
+     * Saves the Whitmore score of each publisher in [scores], keyed by publisher ID, in a single transaction.
+     */
+    fun updateWhitmoreScores(scores: Map<Int, Int>, timestamp: Long = System.currentTimeMillis()) {
+        val batch = arrayListOf<ContentProviderOperation>()
+        scores.forEach { (id, score) ->
+            batch += ContentProviderOperation.newUpdate(Publishers.buildPublisherUri(id))
+                    .withValue(Publishers.WHITMORE_SCORE, score)
+                    .withValue(Publishers.PUBLISHER_STATS_UPDATED_TIMESTAMP, timestamp)
+                    .build()
+        }
+        context.contentResolver.applyBatch(batch, "Saving publisher Whitmore scores")
+    }
+
     private fun upsert(values: ContentValues, publisherId: Int): Int {
         val resolver = context.contentResolver
         val uri = Publishers.buildPublisherUri(publisherId)
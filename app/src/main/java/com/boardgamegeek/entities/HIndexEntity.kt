@@ -10,8 +10,20 @@ data class HIndexEntity(val h: Int, val n: Int) {
     companion object {
         const val INVALID_H_INDEX = -1
 
-        fun fromList(list: List<Int>): HIndexEntity {
-            val counts = list.filter { it > 0 }.sortedDescending()
+        fun fromList(list: List<Int>) = fromCounts(list.toIntArray())
+
+        /**
+         * Counts already sorted in descending order (as they usually come from the database) aren't sorted again.
+         */
+        fun fromCounts(playCounts: IntArray): HIndexEntity {
+            var size = 0
+            val positiveCounts = IntArray(playCounts.size)
+            for (count in playCounts) if (count > 0) positiveCounts[size++] = count
+            val counts = positiveCounts.copyOf(size)
+            if ((1 until counts.size).any { counts[it] > counts[it - 1] }) {
+                counts.sort()
+                counts.reverse()
+            }
 
             var hIndexCounter = 0
             var h = 0
@@ -4,6 +4,9 @@ import com.boardgamegeek.extensions.cdf
 import com.boardgamegeek.extensions.invcdf
 import kotlin.math.ln
 
+/**
+ * Every statistic is gathered in a single pass over the games (expected to be sorted by play count, descending).
+ */
 class PlayStatsEntity(private val games: List<GameForPlayStatEntity>, private val isOwnedSynced: Boolean) {
     companion object {
         const val INVALID_FRIENDLESS = Integer.MIN_VALUE
@@ -13,40 +16,75 @@ class PlayStatsEntity(private val games: List<GameForPlayStatEntity>, private va
         val lambda = ln(0.1) / -10
     }
 
-    val numberOfPlays: Int by lazy {
-        games.sumBy { it.playCount }
-    }
-
-    val numberOfPlayedGames: Int by lazy {
-        games.filter { it.playCount > 0 }.size
-    }
-
-    val numberOfNickels: Int by lazy {
-        games.filter { it.playCount in 5..9 }.size
-    }
-
-    val numberOfDimes: Int by lazy {
-        games.filter { it.playCount in 10..24 }.size
-    }
-
-    val numberOfQuarters: Int by lazy {
-        games.filter { it.playCount in 25..49 }.size
-    }
-
-    val numberOfHalfDollars: Int by lazy {
-        games.filter { it.playCount in 50..99 }.size
-    }
-
-    val numberOfDollars: Int by lazy {
-        games.filter { it.playCount >= 100 }.size
-    }
-
-    val top100Count: Int by lazy {
-        games.filter { it.playCount > 0 }.filter { it.bggRank in 1..100 }.size
+    val numberOfPlays: Int
+    val numberOfPlayedGames: Int
+    val numberOfNickels: Int
+    val numberOfDimes: Int
+    val numberOfQuarters: Int
+    val numberOfHalfDollars: Int
+    val numberOfDollars: Int
+    val top100Count: Int
+
+    private val playCounts = IntArray(games.size)
+    private val ownedPlayCounts: IntArray
+    private val numberOfOwnedGames: Int
+    private val numberOfOwnedGamesThatHaveEarnedTheirKeep: Int
+    private val numberOfOwnedUnplayedGames: Int
+    private val totalCdf: Double
+
+    init {
+        var plays = 0
+        var played = 0
+        var nickels = 0
+        var dimes = 0
+        var quarters = 0
+        var halfDollars = 0
+        var dollars = 0
+        var top100 = 0
+        val owned = IntArray(games.size)
+        var ownedCount = 0
+        var earnedKeep = 0
+        var ownedUnplayed = 0
+        var cdf = 0.0
+        for ((i, game) in games.withIndex()) {
+            val playCount = game.playCount
+            playCounts[i] = playCount
+            plays += playCount
+            when {
+                playCount >= 100 -> dollars++
+                playCount >= 50 -> halfDollars++
+                playCount >= 25 -> quarters++
+                playCount >= 10 -> dimes++
+                playCount >= 5 -> nickels++
+            }
+            if (playCount > 0) {
+                played++
+                if (game.bggRank in 1..100) top100++
+            }
+            if (game.isOwned) {
+                owned[ownedCount++] = playCount
+                if (playCount >= PLAY_COUNT_TO_EARN_KEEP) earnedKeep++
+                if (playCount == 0) ownedUnplayed++
+                cdf += playCount.toDouble().cdf(lambda)
+            }
+        }
+        numberOfPlays = plays
+        numberOfPlayedGames = played
+        numberOfNickels = nickels
+        numberOfDimes = dimes
+        numberOfQuarters = quarters
+        numberOfHalfDollars = halfDollars
+        numberOfDollars = dollars
+        top100Count = top100
+        ownedPlayCounts = owned.copyOf(ownedCount)
+        numberOfOwnedGames = ownedCount
+        numberOfOwnedGamesThatHaveEarnedTheirKeep = earnedKeep
+        numberOfOwnedUnplayedGames = ownedUnplayed
+        totalCdf = cdf
     }
 
     val hIndex: HIndexEntity by lazy {
-        HIndexEntity.fromList(games.map { it.playCount })
+        HIndexEntity.fromCounts(playCounts)
     }
 
     fun getHIndexGames(): List<Pair<String, Int>> {
@@ -58,9 +96,9 @@ class PlayStatsEntity(private val games: List<GameForPlayStatEntity>, private va
         when {
             !isOwnedSynced -> INVALID_FRIENDLESS
             numberOfOwnedGames == 0 -> 0
-            numberOfOwnedGamesThatHaveEarnedTheirKeep >= ownedGamePlayCountsSorted.size -> ownedGamePlayCountsSorted.last().playCount
+            numberOfOwnedGamesThatHaveEarnedTheirKeep >= ownedPlayCounts.size -> ownedPlayCounts.last()
             else -> {
-                val friendless = ownedGamePlayCountsSorted[ownedGamePlayCountsSorted.lastIndex - numberOfOwnedGamesThatHaveEarnedTheirKeep].playCount
+                val friendless = ownedPlayCounts[ownedPlayCounts.lastIndex - numberOfOwnedGamesThatHaveEarnedTheirKeep]
                 if (friendless == 0) numberOfOwnedGamesThatHaveEarnedTheirKeep - numberOfOwnedUnplayedGames else friendless
             }
         }
@@ -81,24 +119,4 @@ class PlayStatsEntity(private val games: List<GameForPlayStatEntity>, private va
             else -> totalCdf / numberOfOwnedGames
         }
     }
-
-    private val numberOfOwnedGames: Int by lazy {
-        games.filter { it.isOwned }.size
-    }
-
-    private val numberOfOwnedGamesThatHaveEarnedTheirKeep: Int by lazy {
-        games.filter { it.isOwned && it.playCount >= PLAY_COUNT_TO_EARN_KEEP }.size
-    }
-
-    private val numberOfOwnedUnplayedGames: Int by lazy {
-        games.filter { it.isOwned && it.playCount == 0 }.size
-    }
-
-    private val ownedGamePlayCountsSorted: List<GameForPlayStatEntity> by lazy {
-        games.filter { it.isOwned }
-    }
-
-    private val totalCdf: Double by lazy {
-        games.asSequence().filter { it.isOwned }.sumByDouble { it.playCount.toDouble().cdf(lambda) }
-    }
-}
\ No newline at end of file
+}
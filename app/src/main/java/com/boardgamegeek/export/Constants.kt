@@ -7,7 +7,9 @@ object Constants {
     const val TYPE_COLLECTION_VIEWS = 1
     const val TYPE_GAMES = 2
     const val TYPE_USERS = 3
+    const val TYPE_PLAYS = 4
     const val TYPE_COLLECTION_VIEWS_DESCRIPTION = "collection-views"
     const val TYPE_GAMES_DESCRIPTION = "games"
     const val TYPE_USERS_DESCRIPTION = "users"
+    const val TYPE_PLAYS_DESCRIPTION = "plays"
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.boardgamegeek.export
+
+import java.io.EOFException
+import java.io.InputStream
+import java.io.PushbackInputStream
+import java.util.zip.CRC32
+import java.util.zip.DataFormatException
+import java.util.zip.Inflater
+import java.util.zip.ZipException
+
+/**
+ * Reads a gzip file made of one or more members as a single stream. The plays backup is written as a member per page,
+ * so an interrupted export can resume by appending members, but before API 21 GZIPInputStream stops at the end of the
+ * first member.
+ */
+class GzipMembersInputStream(input: InputStream) : InputStream() {
+    private val input = PushbackInputStream(input, BUFFER_SIZE)
+    private val inflater = Inflater(true)
+    private val crc = CRC32()
+    private val buffer = ByteArray(BUFFER_SIZE)
+    private var bufferLength = 0
+    private var isInMember = false
+    private var isAtEnd = false
+
+    override fun read(): Int {
+        val b = ByteArray(1)
+        return if (read(b, 0, 1) == -1) -1 else b[0].toInt() and 0xff
+    }
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (len == 0) return 0
+        while (!isAtEnd) {
+            if (!isInMember && !readHeader()) {
+                isAtEnd = true
+                break
+            }
+            if (inflater.needsInput()) {
+                bufferLength = input.read(buffer)
+                if (bufferLength == -1) throw EOFException("Unexpected end of gzip member")
+                inflater.setInput(buffer, 0, bufferLength)
+            }
+            val count = try {
+                inflater.inflate(b, off, len)
+            } catch (e: DataFormatException) {
+                throw ZipException(e.message)
+            }
+            if (count > 0) {
+                crc.update(b, off, count)
+                return count
+            }
+            if (inflater.finished()) {
+                // the inflater stops at the end of the member; give back what it was handed beyond that
+                val remaining = inflater.remaining
+                if (remaining > 0) input.unread(buffer, bufferLength - remaining, remaining)
+                readTrailer()
+            } else if (inflater.needsDictionary()) {
+                throw ZipException("Unexpected preset dictionary in gzip member")
+            }
+        }
+        return -1
+    }
+
+    override fun close() {
+        inflater.end()
+        input.close()
+    }
+
+    /**
+     * Reads the header of the next member.
+     *
+     * @return false if there are no more members
+     */
+    private fun readHeader(): Boolean {
+        val first = input.read()
+        if (first == -1) return false
+        if (first != 0x1f || readByte() != 0x8b) throw ZipException("Not in gzip format")
+        if (readByte() != 8) throw ZipException("Unsupported gzip compression method")
+        val flags = readByte()
+        repeat(6) { readByte() } // modification time, extra flags, and OS
+        if (flags and FLAG_EXTRA != 0) repeat(readByte() or (readByte() shl 8)) { readByte() }
+        if (flags and FLAG_NAME != 0) skipZeroTerminated()
+        if (flags and FLAG_COMMENT != 0) skipZeroTerminated()
+        if (flags and FLAG_HEADER_CRC != 0) repeat(2) { readByte() }
+        inflater.reset()
+        crc.reset()
+        isInMember = true
+        return true
+    }
+
+    private fun readTrailer() {
+        val expectedCrc = readUInt()
+        val expectedSize = readUInt()
+        if (expectedCrc != crc.value) throw ZipException("Corrupt gzip member: CRC mismatch")
+        if (expectedSize != inflater.bytesWritten and 0xffffffffL) throw ZipException("Corrupt gzip member: size mismatch")
+        isInMember = false
+    }
+
+    private fun skipZeroTerminated() {
+        do {
+            val b = readByte()
+        } while (b != 0)
+    }
+
+    private fun readUInt(): Long {
+        var value = 0L
+        for (i in 0 until 4) value = value or (readByte().toLong() shl (8 * i))
+        return value
+    }
+
+    private fun readByte(): Int {
+        val b = input.read()
+        if (b == -1) throw EOFException("Unexpected end of gzip member")
+        return b
+    }
+
+    companion object {
+        private const val BUFFER_SIZE = 8192
+        private const val FLAG_HEADER_CRC = 2
+        private const val FLAG_EXTRA = 4
+        private const val FLAG_NAME = 8
+        private const val FLAG_COMMENT = 16
+    }
+}
@@ -0,0 +1,20 @@
+package com.boardgamegeek.export.model
+
+import com.google.gson.annotations.Expose
+
+class Play(
+        @Expose val playId: Int,
+        @Expose val date: String,
+        @Expose val gameId: Int,
+        @Expose val gameName: String,
+        @Expose val quantity: Int,
+        @Expose val length: Int,
+        @Expose val location: String,
+        @Expose val incomplete: Boolean,
+        @Expose val noWinStats: Boolean,
+        @Expose val comments: String,
+        @Expose val startTime: Long,
+        @Expose val updateTimestamp: Long,
+        @Expose val dirtyTimestamp: Long,
+        @Expose val players: List<Player>,
+) : Model()
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.boardgamegeek.export.model
+
+import com.google.gson.annotations.Expose
+
+class Player(
+        @Expose val name: String,
+        @Expose val username: String,
+        @Expose val startingPosition: String?,
+        @Expose val color: String?,
+        @Expose val score: String?,
+        @Expose val rating: Double,
+        @Expose val userId: Int?,
+        @Expose val isNew: Boolean,
+        @Expose val isWin: Boolean,
+)
\ No newline at end of file
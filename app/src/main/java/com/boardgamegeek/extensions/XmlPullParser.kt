@@ -0,0 +1,55 @@
+package com.boardgamegeek.extensions
+
+import org.xmlpull.v1.XmlPullParser
+
+fun XmlPullParser.getAttribute(name: String): String? = getAttributeValue(null, name)
+
+fun XmlPullParser.getIntAttribute(name: String, defaultValue: Int = 0): Int {
+    return getAttributeValue(null, name)?.trim()?.toIntOrNull() ?: defaultValue
+}
+
+fun XmlPullParser.getDoubleAttribute(name: String, defaultValue: Double = 0.0): Double {
+    return getAttributeValue(null, name)?.trim()?.toDoubleOrNull() ?: defaultValue
+}
+
+/**
+ * Reads the text of the element at the current start tag, leaving the parser on its end tag.
+ */
+fun XmlPullParser.readText(): String {
+    val text = StringBuilder()
+    var depth = 1
+    while (depth > 0) {
+        when (next()) {
+            XmlPullParser.START_TAG -> depth++
+            XmlPullParser.END_TAG -> depth--
+            XmlPullParser.TEXT -> if (depth == 1) text.append(this.text)
+        }
+    }
+    return text.toString()
+}
+
+/**
+ * Skips the element at the current start tag and everything in it, leaving the parser on its end tag.
+ */
+fun XmlPullParser.skipElement() {
+    var depth = 1
+    while (depth > 0) {
+        when (next()) {
+            XmlPullParser.START_TAG -> depth++
+            XmlPullParser.END_TAG -> depth--
+        }
+    }
+}
+
+/**
+ * Calls [onChild] at the start tag of each child of the element at the current start tag, stopping at its end tag.
+ * [onChild] must leave the parser on the child's end tag (e.g. by calling [readText] or [skipElement]).
+ */
+inline fun XmlPullParser.forEachChild(onChild: (name: String) -> Unit) {
+    while (true) {
+        when (next()) {
+            XmlPullParser.START_TAG -> onChild(name)
+            XmlPullParser.END_TAG, XmlPullParser.END_DOCUMENT -> return
+        }
+    }
+}
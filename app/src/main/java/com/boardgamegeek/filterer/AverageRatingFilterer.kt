@@ -15,4 +15,6 @@ class AverageRatingFilterer(context: Context) : RatingFilterer(context) {
     override fun toLongDescription() = describe(R.string.average_rating, R.string.unrated)
 
     override fun filter(item: CollectionItemEntity) = filter(item.averageRating)
+
+    override fun filter(index: CollectionFilterIndex) = filter(index, index.averageRatings)
 }
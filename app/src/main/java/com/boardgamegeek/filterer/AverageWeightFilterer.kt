@@ -47,6 +47,18 @@ class AverageWeightFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        val weights = index.averageWeights
+        return index.match {
+            val weight = weights[it]
+            when {
+                weight == 0.0 -> includeUndefined
+                ignoreRange -> true
+                else -> weight in min..max
+            }
+        }
+    }
+
     companion object {
         const val lowerBound = 1.0
         const val upperBound = 5.0
@@ -0,0 +1,118 @@
+package com.boardgamegeek.filterer
+
+import com.boardgamegeek.entities.CollectionItemEntity
+import com.boardgamegeek.extensions.*
+import com.boardgamegeek.sorter.CollectionSorter
+import kotlinx.coroutines.ensureActive
+import java.util.*
+import kotlin.coroutines.coroutineContext
+
+/**
+ * Filters and sorts collection items; meant to be called off the main thread. Items are indexed into a
+ * [CollectionFilterIndex] once per data load, and each filter's matches are cached as a [BitSet], so stacking,
+ * adding, or removing filters is a handful of word-wise ANDs instead of another pass over the items. When the new
+ * matches are a subset of the last ones (e.g. a filter was added), the last sort order is reused. Runs must not
+ * overlap - cancel and join the previous run before starting the next.
+ */
+class CollectionFilterEngine {
+    private var index: CollectionFilterIndex? = null
+    private var positions: IdentityHashMap<CollectionItemEntity, Int>? = null
+    private val filterMatches = mutableMapOf<FilterKey, BitSet>()
+
+    private var lastMatches: BitSet? = null
+    private var lastStatuses: Set<String>? = null
+    private var lastSorter: CollectionSorter? = null
+    private var lastSortedPositions = IntArray(0)
+
+    private data class FilterKey(val type: Int, val data: String)
+
+    /**
+     * @param statuses when not null, items are filtered by these sync statuses instead of by the filters (the
+     * behavior of the default view).
+     */
+    suspend fun filterAndSort(
+            items: List<CollectionItemEntity>,
+            filters: List<CollectionFilterer>,
+            statuses: Set<String>?,
+            sorter: CollectionSorter?,
+    ): List<CollectionItemEntity> {
+        val index = indexFor(items)
+
+        val matches = if (statuses != null) {
+            index.matchItems { coroutineContext.ensureActive(); it.matchesAny(statuses) }
+        } else {
+            val matches = index.all()
+            if (filterMatches.size > MAX_CACHED_FILTERS) filterMatches.clear()
+            filters.forEach { filter ->
+                coroutineContext.ensureActive()
+                matches.and(filterMatches.getOrPut(FilterKey(filter.type, filter.deflate())) { filter.filter(index) })
+            }
+            matches
+        }
+
+        val previousMatches = lastMatches
+        val canReuseOrder = previousMatches != null && statuses == null && lastStatuses == null && sorter === lastSorter
+        val sortedPositions = when {
+            canReuseOrder && matches == previousMatches -> lastSortedPositions
+            canReuseOrder && matches.isSubsetOf(previousMatches!!) -> lastSortedPositions.filter { matches[it] }.toIntArray()
+            else -> sort(index, matches, sorter)
+        }
+
+        lastMatches = matches
+        lastStatuses = statuses
+        lastSorter = sorter
+        lastSortedPositions = sortedPositions
+        return sortedPositions.map { items[it] }
+    }
+
+    private fun indexFor(items: List<CollectionItemEntity>): CollectionFilterIndex {
+        index?.let { if (it.items === items) return it }
+        filterMatches.clear()
+        positions = null
+        lastMatches = null
+        return CollectionFilterIndex(items).also { index = it }
+    }
+
+    private suspend fun sort(index: CollectionFilterIndex, matches: BitSet, sorter: CollectionSorter?): IntArray {
+        val sortedPositions = IntArray(matches.cardinality())
+        var i = 0
+        var position = matches.nextSetBit(0)
+        while (position >= 0) {
+            sortedPositions[i++] = position
+            position = matches.nextSetBit(position + 1)
+        }
+        if (sorter == null) return sortedPositions
+
+        coroutineContext.ensureActive()
+        val positionOf = positions ?: IdentityHashMap<CollectionItemEntity, Int>(index.size).also { map ->
+            index.items.forEachIndexed { position, item -> map[item] = position }
+            positions = map
+        }
+        val sortedItems = sorter.sort(sortedPositions.map { index.items[it] })
+        return IntArray(sortedItems.size) { positionOf[sortedItems[it]] ?: 0 }
+    }
+
+    private fun BitSet.isSubsetOf(other: BitSet): Boolean {
+        return (clone() as BitSet).apply { andNot(other) }.isEmpty
+    }
+
+    private fun CollectionItemEntity.matchesAny(statuses: Set<String>): Boolean {
+        return (statuses.contains(COLLECTION_STATUS_OWN) && own) ||
+                (statuses.contains(COLLECTION_STATUS_PREVIOUSLY_OWNED) && previouslyOwned) ||
+                (statuses.contains(COLLECTION_STATUS_FOR_TRADE) && forTrade) ||
+                (statuses.contains(COLLECTION_STATUS_WANT_IN_TRADE) && wantInTrade) ||
+                (statuses.contains(COLLECTION_STATUS_WANT_TO_BUY) && wantToPlay) ||
+                (statuses.contains(COLLECTION_STATUS_WISHLIST) && wishList) ||
+                (statuses.contains(COLLECTION_STATUS_WANT_TO_PLAY) && wantToPlay) ||
+                (statuses.contains(COLLECTION_STATUS_PREORDERED) && preOrdered) ||
+                (statuses.contains(COLLECTION_STATUS_PLAYED) && numberOfPlays > 1) ||
+                (statuses.contains(COLLECTION_STATUS_RATED) && rating > 0.0) ||
+                (statuses.contains(COLLECTION_STATUS_COMMENTED) && comment.isNotBlank()) ||
+                (statuses.contains(COLLECTION_STATUS_HAS_PARTS) && hasPartsList.isNotBlank()) ||
+                (statuses.contains(COLLECTION_STATUS_WANT_PARTS) && wantPartsList.isNotBlank())
+    }
+
+    companion object {
+        private const val MAX_CACHED_FILTERS = 32
+    }
+}
@@ -0,0 +1,47 @@
+package com.boardgamegeek.filterer
+
+import com.boardgamegeek.entities.CollectionItemEntity
+import java.util.*
+
+/**
+ * Column-oriented view of a loaded collection, built once per data load. Each filterable attribute is copied into a
+ * primitive array (on first use) so a filter can be evaluated as a tight scan that yields a [BitSet] of matching
+ * positions, and stacked filters combine with word-wise ANDs.
+ */
+class CollectionFilterIndex(val items: List<CollectionItemEntity>) {
+    val size = items.size
+
+    val minPlayerCounts by lazy { IntArray(size) { items[it].minPlayerCount } }
+    val maxPlayerCounts by lazy { IntArray(size) { items[it].maxPlayerCount } }
+    val playingTimes by lazy { IntArray(size) { items[it].playingTime } }
+    val minimumAges by lazy { IntArray(size) { items[it].minimumAge } }
+    val yearsPublished by lazy { IntArray(size) { items[it].collectionYearPublished } }
+    val numbersOfPlays by lazy { IntArray(size) { items[it].numberOfPlays } }
+    val ranks by lazy { IntArray(size) { items[it].rank } }
+    val averageWeights by lazy { DoubleArray(size) { items[it].averageWeight } }
+    val averageRatings by lazy { DoubleArray(size) { items[it].averageRating } }
+    val geekRatings by lazy { DoubleArray(size) { items[it].geekRating } }
+    val ratings by lazy { DoubleArray(size) { items[it].rating } }
+    val favorites by lazy { BitSet(size).also { bits -> items.forEachIndexed { i, item -> if (item.isFavorite) bits.set(i) } } }
+
+    /**
+     * A set with every position in the index.
+     */
+    fun all() = BitSet(size).apply { set(0, size) }
+
+    /**
+     * A set of the positions matching the predicate, which is called with each position in the index.
+     */
+    inline fun match(predicate: (Int) -> Boolean): BitSet {
+        val bits = BitSet(size)
+        for (i in 0 until size) {
+            if (predicate(i)) bits.set(i)
+        }
+        return bits
+    }
+
+    /**
+     * Fallback for filters that don't have a primitive column to scan.
+     */
+    inline fun matchItems(predicate: (CollectionItemEntity) -> Boolean) = match { predicate(items[it]) }
+}
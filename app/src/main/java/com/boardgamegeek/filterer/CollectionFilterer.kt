@@ -3,15 +3,20 @@ package com.boardgamegeek.filterer
 import android.content.Context
 import androidx.annotation.StringRes
 import com.boardgamegeek.entities.CollectionItemEntity
+import java.util.*
 
 abstract class CollectionFilterer(protected val context: Context) {
 
     @get:StringRes
     abstract val typeResourceId: Int
 
-    val type: Int
-        get() = context.getString(typeResourceId, CollectionFiltererFactory.TYPE_UNKNOWN).toIntOrNull()
+    /**
+     * The unique type. Resolved from the string resource once, since it's read by [equals] and [hashCode].
+     */
+    val type: Int by lazy {
+        context.getString(typeResourceId, CollectionFiltererFactory.TYPE_UNKNOWN).toIntOrNull()
                 ?: CollectionFiltererFactory.TYPE_UNKNOWN
+    }
 
     abstract fun toShortDescription(): String
 
@@ -19,6 +24,12 @@ abstract class CollectionFilterer(protected val context: Context) {
 
     open fun filter(item: CollectionItemEntity): Boolean = true
 
+    /**
+     * Evaluate this filter against every item in the index at once, returning the matching positions. Filterers backed
+     * by a single attribute override this to scan a primitive column instead of each item.
+     */
+    open fun filter(index: CollectionFilterIndex): BitSet = index.matchItems { filter(it) }
+
     val isValid: Boolean
         get() = toShortDescription().isNotEmpty()
 
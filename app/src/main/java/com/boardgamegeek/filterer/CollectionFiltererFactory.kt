@@ -1,31 +1,37 @@
 package com.boardgamegeek.filterer
 
 import android.content.Context
+import android.util.SparseArray
 
-class CollectionFiltererFactory(context: Context) {
-    private val filterers: MutableList<CollectionFilterer>
+/**
+ * Creates filterers by type. Every call returns a new instance, so a filterer inflated for one view or one background
+ * filtering pass is never changed underneath another.
+ */
+class CollectionFiltererFactory(private val context: Context) {
+    private val constructors = SparseArray<(Context) -> CollectionFilterer>()
 
     init {
-        filterers = arrayListOf()
-        filterers.add(CollectionStatusFilterer(context))
-        filterers.add(CollectionNameFilter(context))
-        filterers.add(PlayerNumberFilterer(context))
-        filterers.add(PlayTimeFilterer(context))
-        filterers.add(SuggestedAgeFilterer(context))
-        filterers.add(AverageWeightFilterer(context))
-        filterers.add(YearPublishedFilterer(context))
-        filterers.add(AverageRatingFilterer(context))
-        filterers.add(GeekRatingFilterer(context))
-        filterers.add(GeekRankingFilterer(context))
-        filterers.add(ExpansionStatusFilterer(context))
-        filterers.add(PlayCountFilterer(context))
-        filterers.add(MyRatingFilterer(context))
-        filterers.add(RecommendedPlayerCountFilterer(context))
-        filterers.add(FavoriteFilterer(context))
+        listOf<(Context) -> CollectionFilterer>(
+                ::CollectionStatusFilterer,
+                ::CollectionNameFilter,
+                ::PlayerNumberFilterer,
+                ::PlayTimeFilterer,
+                ::SuggestedAgeFilterer,
+                ::AverageWeightFilterer,
+                ::YearPublishedFilterer,
+                ::AverageRatingFilterer,
+                ::GeekRatingFilterer,
+                ::GeekRankingFilterer,
+                ::ExpansionStatusFilterer,
+                ::PlayCountFilterer,
+                ::MyRatingFilterer,
+                ::RecommendedPlayerCountFilterer,
+                ::FavoriteFilterer,
+        ).forEach { constructors.put(it(context).type, it) }
     }
 
     fun create(type: Int): CollectionFilterer? {
-        return filterers.find { it.type == type }
+        return constructors.get(type)?.invoke(context)
     }
 
     companion object {
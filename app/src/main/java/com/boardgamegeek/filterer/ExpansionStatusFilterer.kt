@@ -3,6 +3,7 @@ package com.boardgamegeek.filterer
 import android.content.Context
 import com.boardgamegeek.R
 import com.boardgamegeek.entities.CollectionItemEntity
+import java.util.*
 
 class ExpansionStatusFilterer(context: Context) : CollectionFilterer(context) {
     var selectedSubtype = ALL
@@ -22,6 +23,12 @@ class ExpansionStatusFilterer(context: Context) : CollectionFilterer(context) {
         return if (value.isNotEmpty()) item.subType == value else true
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        // resolve the value once rather than for every item
+        val value = getFromArray(R.array.expansion_status_filter_values)
+        return if (value.isNotEmpty()) index.matchItems { it.subType == value } else index.all()
+    }
+
     private fun getFromArray(resId: Int): String {
         return context.resources.getStringArray(resId).getOrNull(selectedSubtype) ?: ""
     }
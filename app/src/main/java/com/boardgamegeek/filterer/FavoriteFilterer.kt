@@ -3,6 +3,7 @@ package com.boardgamegeek.filterer
 import android.content.Context
 import com.boardgamegeek.R
 import com.boardgamegeek.entities.CollectionItemEntity
+import java.util.*
 
 class FavoriteFilterer(context: Context) : CollectionFilterer(context) {
     var isFavorite = false
@@ -21,6 +22,14 @@ class FavoriteFilterer(context: Context) : CollectionFilterer(context) {
         return if (isFavorite) item.isFavorite else !item.isFavorite
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        return if (isFavorite) {
+            index.favorites.clone() as BitSet
+        } else {
+            index.all().apply { andNot(index.favorites) }
+        }
+    }
+
     companion object {
         private const val FAVORITE = "1"
         private const val NOT_FAVORITE = "0"
@@ -49,6 +49,19 @@ class GeekRankingFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        val ranks = index.ranks
+        return index.match {
+            val rank = ranks[it]
+            when {
+                rank == RANK_UNKNOWN -> includeUnranked
+                max == upperBound -> rank >= min
+                min == lowerBound -> rank <= max
+                else -> rank in min..max
+            }
+        }
+    }
+
     companion object {
         const val lowerBound = 1
         const val upperBound = 2000
@@ -15,4 +15,6 @@ class GeekRatingFilterer(context: Context) : RatingFilterer(context) {
     override fun toLongDescription() = describe(R.string.geek_rating, R.string.unrated)
 
     override fun filter(item: CollectionItemEntity) = filter(item.geekRating)
+
+    override fun filter(index: CollectionFilterIndex) = filter(index, index.geekRatings)
 }
@@ -15,4 +15,6 @@ class MyRatingFilterer(context: Context) : RatingFilterer(context) {
     override fun toLongDescription() = describe(R.string.my_rating, R.string.unrated)
 
     override fun filter(item: CollectionItemEntity) = filter(item.rating)
+
+    override fun filter(index: CollectionFilterIndex) = filter(index, index.ratings)
 }
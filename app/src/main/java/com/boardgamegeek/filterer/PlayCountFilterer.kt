@@ -37,6 +37,14 @@ class PlayCountFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        val numbersOfPlays = index.numbersOfPlays
+        return when {
+            max >= upperBound -> index.match { numbersOfPlays[it] >= min }
+            else -> index.match { numbersOfPlays[it] in min..max }
+        }
+    }
+
     companion object {
         const val lowerBound = 0
         const val upperBound = 25
@@ -8,6 +8,7 @@ import com.boardgamegeek.extensions.IntervalDelegate
 import com.boardgamegeek.extensions.andLess
 import com.boardgamegeek.extensions.andMore
 import com.boardgamegeek.extensions.asTime
+import java.util.*
 
 class PlayTimeFilterer(context: Context) : CollectionFilterer(context) {
     var min by IntervalDelegate(lowerBound, lowerBound, upperBound)
@@ -51,6 +52,19 @@ class PlayTimeFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        val playingTimes = index.playingTimes
+        return index.match {
+            val playingTime = playingTimes[it]
+            when {
+                playingTime == 0 -> includeUndefined
+                min == lowerBound -> playingTime <= max
+                max == upperBound -> playingTime >= min
+                else -> playingTime in min..max
+            }
+        }
+    }
+
     companion object {
         const val lowerBound = 0
         const val upperBound = 360 // 6 hours
@@ -38,6 +38,15 @@ class PlayerNumberFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        val minPlayerCounts = index.minPlayerCounts
+        val maxPlayerCounts = index.maxPlayerCounts
+        return when {
+            isExact -> index.match { minPlayerCounts[it] == min && maxPlayerCounts[it] == max }
+            else -> index.match { minPlayerCounts[it] <= min && (maxPlayerCounts[it] >= max || maxPlayerCounts[it] == 0) }
+        }
+    }
+
     companion object {
         const val lowerBound = 1
         const val upperBound = 12
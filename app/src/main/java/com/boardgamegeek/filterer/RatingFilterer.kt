@@ -50,6 +50,8 @@ abstract class RatingFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    protected fun filter(index: CollectionFilterIndex, ratings: DoubleArray): BitSet = index.match { filter(ratings[it]) }
+
     companion object {
         const val lowerBound = 1.0
         const val upperBound = 10.0
@@ -45,6 +45,15 @@ class SuggestedAgeFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        val minimumAges = index.minimumAges
+        return when {
+            includeUndefined -> index.match { minimumAges[it] == 0 }
+            max == upperBound -> index.match { minimumAges[it] >= min }
+            else -> index.match { minimumAges[it] in min..max }
+        }
+    }
+
     companion object {
         const val lowerBound = 1
         const val upperBound = 21
@@ -68,6 +68,16 @@ class YearPublishedFilterer(context: Context) : CollectionFilterer(context) {
         }
     }
 
+    override fun filter(index: CollectionFilterIndex): BitSet {
+        if (min == lowerBound && max == upperBound) return index.all()
+        val years = index.yearsPublished
+        return when {
+            min == lowerBound -> index.match { years[it] <= max }
+            max == upperBound -> index.match { years[it] >= min }
+            else -> index.match { years[it] in min..max }
+        }
+    }
+
     companion object {
         const val lowerBound = 1970
         val upperBound = Calendar.getInstance().get(Calendar.YEAR) + 1
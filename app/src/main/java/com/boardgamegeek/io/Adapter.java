@@ -8,32 +8,55 @@ import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
 
+/**
+ * Registry of the Retrofit services used to talk to BGG. Each service is created once and reused for the life of the
+ * process; they're thread-safe and share the connection pool of the underlying HTTP clients.
+ */
 public class Adapter {
-	public static GeekdoApi createGeekdoApi() {
-		return new Retrofit.Builder()
-			.client(HttpUtils.getHttpClient(true))
-			.baseUrl("https://api.geekdo.com")
-			.addConverterFactory(GsonConverterFactory.create())
-			.build()
-			.create(GeekdoApi.class);
+	private static GeekdoApi geekdoApi;
+	private static BggService xmlService;
+	private static BggService xmlServiceWithAuth;
+	private static BggService jsonService;
+
+	public static synchronized GeekdoApi createGeekdoApi() {
+		if (geekdoApi == null) {
+			geekdoApi = new Retrofit.Builder()
+				.client(HttpUtils.getHttpClient(true))
+				.baseUrl("https://api.geekdo.com")
+				.addConverterFactory(GsonConverterFactory.create())
+				.build()
+				.create(GeekdoApi.class);
+		}
+		return geekdoApi;
 	}
 
-	public static BggService createForXml() {
-		Retrofit.Builder builder = createBuilderWithoutConverterFactory(null);
-		builder.addConverterFactory(SimpleXmlConverterFactory.createNonStrict());
-		return builder.build().create(BggService.class);
+	public static synchronized BggService createForXml() {
+		if (xmlService == null) {
+			Retrofit.Builder builder = createBuilderWithoutConverterFactory(null);
+			builder.addConverterFactory(new XmlPullConverterFactory());
+			builder.addConverterFactory(SimpleXmlConverterFactory.createNonStrict());
+			xmlService = builder.build().create(BggService.class);
+		}
+		return xmlService;
 	}
 
-	public static BggService createForXmlWithAuth(Context context) {
-		Retrofit.Builder builder = createBuilderWithoutConverterFactory(context);
-		builder.addConverterFactory(SimpleXmlConverterFactory.createNonStrict());
-		return builder.build().create(BggService.class);
+	public static synchronized BggService createForXmlWithAuth(Context context) {
+		if (xmlServiceWithAuth == null) {
+			Retrofit.Builder builder = createBuilderWithoutConverterFactory(context);
+			builder.addConverterFactory(new XmlPullConverterFactory());
+			builder.addConverterFactory(SimpleXmlConverterFactory.createNonStrict());
+			xmlServiceWithAuth = builder.build().create(BggService.class);
+		}
+		return xmlServiceWithAuth;
 	}
 
-	public static BggService createForJson() {
-		Retrofit.Builder builder = createBuilderWithoutConverterFactory(null);
-		builder.addConverterFactory(GsonConverterFactory.create());
-		return builder.build().create(BggService.class);
+	public static synchronized BggService createForJson() {
+		if (jsonService == null) {
+			Retrofit.Builder builder = createBuilderWithoutConverterFactory(null);
+			builder.addConverterFactory(GsonConverterFactory.create());
+			jsonService = builder.build().create(BggService.class);
+		}
+		return jsonService;
 	}
 
 	private static Retrofit.Builder createBuilderWithoutConverterFactory(Context context) {
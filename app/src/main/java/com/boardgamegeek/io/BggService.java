@@ -19,11 +19,13 @@ import java.text.SimpleDateFormat;
 import java.util.Locale;
 import java.util.Map;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 import retrofit2.http.QueryMap;
+import retrofit2.http.Streaming;
 
 public interface BggService {
 	String THING_SUBTYPE_BOARDGAME = "boardgame";
@@ -54,6 +56,14 @@ public interface BggService {
 	@GET("/xmlapi2/collection")
 	Call<CollectionResponse> collection(@Query("username") String username, @QueryMap Map<String, String> options);
 
+	/**
+	 * The same as {@link #collection(String, Map)}, but leaves the body unread so it can be parsed as it downloads with
+	 * {@link CollectionResponseParser}.
+	 */
+	@Streaming
+	@GET("/xmlapi2/collection")
+	Call<ResponseBody> collectionStream(@Query("username") String username, @QueryMap Map<String, String> options);
+
 	@GET("/xmlapi2/thing")
 	Call<ThingResponse> thing(@Query("id") int gameId, @Query("stats") int stats);
 
@@ -0,0 +1,145 @@
+package com.boardgamegeek.io
+
+import android.util.Xml
+import com.boardgamegeek.extensions.*
+import com.boardgamegeek.io.model.CollectionItem
+import com.boardgamegeek.io.model.CollectionResponse
+import com.boardgamegeek.io.model.Game
+import org.xmlpull.v1.XmlPullParser
+import java.io.Reader
+
+/**
+ * Pull parser for the response of `/xmlapi2/collection`. Hands each item off as soon as it's parsed, so a caller can
+ * persist a large collection in chunks instead of holding all of it (and SimpleXML's reflective bookkeeping) in memory.
+ */
+object CollectionResponseParser {
+    /**
+     * Parses the whole response, for callers that want it as a [CollectionResponse].
+     */
+    fun parse(reader: Reader): CollectionResponse {
+        val response = CollectionResponse()
+        response.totalitems = parse(reader) { item ->
+            (response.items ?: mutableListOf<CollectionItem>().also { response.items = it }).add(item)
+        }
+        return response
+    }
+
+    /**
+     * Streams the items in the response to [onItem] in document order.
+     *
+     * @return the total number of items the response claims to have
+     */
+    fun parse(reader: Reader, onItem: (CollectionItem) -> Unit): Int {
+        val parser = Xml.newPullParser()
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false)
+        parser.setInput(reader)
+        if (parser.nextTag() != XmlPullParser.START_TAG || parser.name != "items") return 0
+        val totalItems = parser.getIntAttribute("totalitems")
+        parser.forEachChild { name ->
+            if (name == "item") onItem(parseItem(parser)) else parser.skipElement()
+        }
+        return totalItems
+    }
+
+    private fun parseItem(parser: XmlPullParser): CollectionItem {
+        val item = CollectionItem()
+        item.objectid = parser.getIntAttribute("objectid")
+        item.collid = parser.getAttribute("collid")
+        parser.forEachChild { name ->
+            when (name) {
+                "name" -> {
+                    item.sortindex = parser.getIntAttribute("sortindex")
+                    item.name = parser.readText()
+                }
+                "originalname" -> item.originalname = parser.readText()
+                "yearpublished" -> item.yearpublished = parser.readText()
+                "image" -> item.image = parser.readText()
+                "thumbnail" -> item.thumbnail = parser.readText()
+                "stats" -> item.stats = parseStatistics(parser)
+                "status" -> {
+                    item.own = parser.getAttribute("own")
+                    item.prevowned = parser.getAttribute("prevowned")
+                    item.fortrade = parser.getAttribute("fortrade")
+                    item.want = parser.getAttribute("want")
+                    item.wanttoplay = parser.getAttribute("wanttoplay")
+                    item.wanttobuy = parser.getAttribute("wanttobuy")
+                    item.wishlist = parser.getAttribute("wishlist")
+                    item.wishlistpriority = parser.getIntAttribute("wishlistpriority")
+                    item.preordered = parser.getAttribute("preordered")
+                    item.lastmodified = parser.getAttribute("lastmodified")
+                    parser.skipElement()
+                }
+                "numplays" -> item.numplays = parser.readText().trim().toIntOrNull() ?: 0
+                "privateinfo" -> {
+                    item.pp_currency = parser.getAttribute("pp_currency")
+                    item.pricepaid = parser.getAttribute("pricepaid").orZero()
+                    item.cv_currency = parser.getAttribute("cv_currency")
+                    item.currvalue = parser.getAttribute("currvalue").orZero()
+                    item.quantity = parser.getAttribute("quantity")
+                    item.acquisitiondate = parser.getAttribute("acquisitiondate")
+                    item.acquiredfrom = parser.getAttribute("acquiredfrom")
+                    item.inventorylocation = parser.getAttribute("inventorylocation")
+                    parser.forEachChild { childName ->
+                        if (childName == "privatecomment") item.privatecomment = parser.readText() else parser.skipElement()
+                    }
+                }
+                "comment" -> item.comment = parser.readText()
+                "conditiontext" -> item.conditiontext = parser.readText()
+                "wantpartslist" -> item.wantpartslist = parser.readText()
+                "haspartslist" -> item.haspartslist = parser.readText()
+                "wishlistcomment" -> item.wishlistcomment = parser.readText()
+                else -> parser.skipElement()
+            }
+        }
+        return item
+    }
+
+    private fun parseStatistics(parser: XmlPullParser): CollectionItem.Statistics {
+        val stats = CollectionItem.Statistics()
+        stats.minplayers = parser.getIntAttribute("minplayers")
+        stats.maxplayers = parser.getIntAttribute("maxplayers")
+        stats.minplaytime = parser.getIntAttribute("minplaytime")
+        stats.maxplaytime = parser.getIntAttribute("maxplaytime")
+        stats.playingtime = parser.getIntAttribute("playingtime")
+        stats.numowned = parser.getAttribute("numowned")
+        parser.forEachChild { name ->
+            if (name == "rating") {
+                stats.rating = parser.getAttribute("value")
+                parser.forEachChild { ratingName ->
+                    when (ratingName) {
+                        "usersrated" -> stats.usersrated = parser.getAttribute("value")
+                        "average" -> stats.average = parser.getAttribute("value")
+                        "bayesaverage" -> stats.bayesaverage = parser.getAttribute("value")
+                        "stddev" -> stats.stddev = parser.getAttribute("value")
+                        "median" -> stats.median = parser.getAttribute("value")
+                        "ranks" -> stats.ranks = parseRanks(parser)
+                    }
+                    if (ratingName != "ranks") parser.skipElement()
+                }
+            } else {
+                parser.skipElement()
+            }
+        }
+        return stats
+    }
+
+    private fun parseRanks(parser: XmlPullParser): List<Game.Rank> {
+        val ranks = mutableListOf<Game.Rank>()
+        parser.forEachChild { name ->
+            if (name == "rank") {
+                ranks += Game.Rank().apply {
+                    type = parser.getAttribute("type")
+                    id = parser.getIntAttribute("id")
+                    this.name = parser.getAttribute("name")
+                    friendlyname = parser.getAttribute("friendlyname")
+                    value = parser.getAttribute("value")
+                    bayesaverage = parser.getAttribute("bayesaverage")
+                }
+            }
+            parser.skipElement()
+        }
+        return ranks
+    }
+
+    private fun String?.orZero() = if (isNullOrEmpty()) "0.0" else this
+}
@@ -0,0 +1,89 @@
+package com.boardgamegeek.io
+
+import android.util.Xml
+import com.boardgamegeek.extensions.*
+import com.boardgamegeek.io.model.Play
+import com.boardgamegeek.io.model.Player
+import com.boardgamegeek.io.model.PlaysResponse
+import org.xmlpull.v1.XmlPullParser
+import java.io.Reader
+
+/**
+ * Pull parser for the response of `/xmlapi2/plays`, building the [PlaysResponse] in a single forward pass.
+ */
+object PlaysResponseParser {
+    fun parse(reader: Reader): PlaysResponse {
+        val response = PlaysResponse()
+        val parser = Xml.newPullParser()
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false)
+        parser.setInput(reader)
+        if (parser.nextTag() != XmlPullParser.START_TAG || parser.name != "plays") return response
+        response.username = parser.getAttribute("username")
+        response.userid = parser.getIntAttribute("userid")
+        response.total = parser.getIntAttribute("total")
+        response.page = parser.getIntAttribute("page")
+        parser.forEachChild { name ->
+            if (name == "play") {
+                (response.plays ?: mutableListOf<Play>().also { response.plays = it }).add(parsePlay(parser))
+            } else {
+                parser.skipElement()
+            }
+        }
+        return response
+    }
+
+    private fun parsePlay(parser: XmlPullParser): Play {
+        val play = Play()
+        play.id = parser.getIntAttribute("id")
+        play.date = parser.getAttribute("date")
+        play.quantity = parser.getIntAttribute("quantity")
+        play.length = parser.getIntAttribute("length")
+        play.incomplete = parser.getIntAttribute("incomplete")
+        play.nowinstats = parser.getIntAttribute("nowinstats")
+        play.location = parser.getAttribute("location")
+        parser.forEachChild { name ->
+            when (name) {
+                "item" -> {
+                    play.name = parser.getAttribute("name")
+                    play.objectid = parser.getIntAttribute("objectid")
+                    play.objecttype = parser.getAttribute("objecttype")
+                    val subtypes = mutableListOf<Play.Subtype>()
+                    parser.forEachChild { itemName ->
+                        if (itemName == "subtypes") {
+                            parser.forEachChild { subtypeName ->
+                                if (subtypeName == "subtype") subtypes += Play.Subtype().apply { value = parser.getAttribute("value") }
+                                parser.skipElement()
+                            }
+                        } else {
+                            parser.skipElement()
+                        }
+                    }
+                    play.subtypes = subtypes
+                }
+                "comments" -> play.comments = parser.readText()
+                "players" -> {
+                    val players = mutableListOf<Player>()
+                    parser.forEachChild { playerName ->
+                        if (playerName == "player") players += parsePlayer(parser)
+                        parser.skipElement()
+                    }
+                    play.players = players
+                }
+                else -> parser.skipElement()
+            }
+        }
+        return play
+    }
+
+    private fun parsePlayer(parser: XmlPullParser) = Player().apply {
+        username = parser.getAttribute("username")
+        userid = parser.getIntAttribute("userid")
+        name = parser.getAttribute("name")
+        startposition = parser.getAttribute("startposition")
+        color = parser.getAttribute("color")
+        score = parser.getAttribute("score")
+        new_ = parser.getIntAttribute("new")
+        rating = parser.getDoubleAttribute("rating")
+        win = parser.getIntAttribute("win")
+    }
+}
@@ -0,0 +1,42 @@
+package com.boardgamegeek.io
+
+import android.os.SystemClock
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Paces requests to BGG across all sync tasks, as a token bucket holding a single token: each request reserves the
+ * next slot, which comes at least the requested interval after the previous one. When the server pushes back (a 429
+ * or 503 seen by [RetryInterceptor]), the next slot is held off for the back off and intervals are stretched until
+ * requests are accepted again.
+ */
+object RequestGovernor {
+    private const val MAX_PENALTY_FACTOR = 8
+
+    private var nextSlotAt = 0L
+    private var penaltyFactor = 1
+
+    /**
+     * Reserves the next request slot.
+     *
+     * @return the number of milliseconds to wait before making the request
+     */
+    @Synchronized
+    fun reserve(intervalMillis: Long): Long {
+        val now = SystemClock.elapsedRealtime()
+        val slotAt = max(now, nextSlotAt)
+        nextSlotAt = slotAt + intervalMillis * penaltyFactor
+        return slotAt - now
+    }
+
+    @Synchronized
+    fun onThrottled(backOffMillis: Long) {
+        nextSlotAt = max(nextSlotAt, SystemClock.elapsedRealtime() + backOffMillis)
+        penaltyFactor = min(penaltyFactor * 2, MAX_PENALTY_FACTOR)
+    }
+
+    @Synchronized
+    fun onAccepted() {
+        if (penaltyFactor > 1) penaltyFactor--
+    }
+}
@@ -5,6 +5,7 @@ import okhttp3.Interceptor
 import okhttp3.Response
 import timber.log.Timber
 import java.io.IOException
+import kotlin.math.max
 
 class RetryInterceptor(private val retry202Response: Boolean = true) : Interceptor {
     private val initialIntervalMillisFor202 = RemoteConfig.getInt(RemoteConfig.KEY_RETRY_202_INITIAL_INTERVAL_MILLIS)
@@ -14,22 +15,13 @@ class RetryInterceptor(private val retry202Response: Boolean = true) : Intercept
     private val maxElapsedMillisFor202 = RemoteConfig.getInt(RemoteConfig.KEY_RETRY_202_MAX_ELAPSED_MILLIS)
     private val maxBackOffCountFor429 = RemoteConfig.getInt(RemoteConfig.KEY_RETRY_429_MAX_BACKOFF_COUNT)
 
-    private val backOff202: BackOff
-    private val backOff429: BackOff
-    private val backOff503: BackOff
-
-    init {
-        backOff202 = ExponentialBackOff(initialIntervalMillisFor202, randomizationFactorFor202, multiplierFor202, maxIntervalMillisFor202, maxElapsedMillisFor202)
-        backOff429 = FixedBackOff(maxBackOffCount = maxBackOffCountFor429)
-        backOff503 = FixedBackOff()
-    }
-
     @Throws(IOException::class)
     override fun intercept(chain: Interceptor.Chain): Response {
-        resetBackOff()
+        // back off state is kept per call, since this interceptor is shared by concurrent calls on the same client
+        val backOffs = createBackOffs()
         val originalRequest = chain.request()
         var response = chain.proceed(originalRequest)
-        var millis = nextBackOffMillis(response)
+        var millis = backOffs.nextBackOffMillis(response)
         while (millis != BackOff.STOP) {
             response.close()
 
@@ -43,26 +35,31 @@ class RetryInterceptor(private val retry202Response: Boolean = true) : Intercept
 
             Timber.d("...retrying")
             response = chain.proceed(originalRequest)
-            millis = nextBackOffMillis(response)
+            millis = backOffs.nextBackOffMillis(response)
         }
         return response
     }
 
-    private fun resetBackOff() {
-        backOff202.reset()
-        backOff429.reset()
-        backOff503.reset()
-    }
+    private fun createBackOffs() = BackOffs(
+            ExponentialBackOff(initialIntervalMillisFor202, randomizationFactorFor202, multiplierFor202, maxIntervalMillisFor202, maxElapsedMillisFor202),
+            FixedBackOff(maxBackOffCount = maxBackOffCountFor429),
+            FixedBackOff()
+    )
 
-    private fun nextBackOffMillis(response: Response): Long {
-        return when (response.code) {
-            COLLECTION_REQUEST_PROCESSING -> {
-                if (retry202Response) backOff202.nextBackOffMillis()
-                else BackOff.STOP
+    private inner class BackOffs(private val backOff202: BackOff, private val backOff429: BackOff, private val backOff503: BackOff) {
+        fun nextBackOffMillis(response: Response): Long {
+            return when (response.code) {
+                COLLECTION_REQUEST_PROCESSING -> {
+                    if (retry202Response) backOff202.nextBackOffMillis()
+                    else BackOff.STOP
+                }
+                RATE_LIMIT_EXCEEDED -> backOff429.nextBackOffMillis().also { RequestGovernor.onThrottled(max(it, 0L)) }
+                API_RATE_EXCEEDED -> backOff503.nextBackOffMillis().also { RequestGovernor.onThrottled(max(it, 0L)) }
+                else -> {
+                    if (response.isSuccessful) RequestGovernor.onAccepted()
+                    BackOff.STOP
+                }
             }
-            RATE_LIMIT_EXCEEDED -> backOff429.nextBackOffMillis()
-            API_RATE_EXCEEDED -> backOff503.nextBackOffMillis()
-            else -> BackOff.STOP
         }
     }
 
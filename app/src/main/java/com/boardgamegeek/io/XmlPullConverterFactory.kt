@@ -0,0 +1,36 @@
+package com.boardgamegeek.io
+
+import com.boardgamegeek.io.model.CollectionResponse
+import com.boardgamegeek.io.model.PlaysResponse
+import okhttp3.ResponseBody
+import org.xmlpull.v1.XmlPullParserException
+import retrofit2.Converter
+import retrofit2.Retrofit
+import java.lang.reflect.Type
+
+/**
+ * Converts the largest XML responses - collections and plays - with hand-written pull parsers. Every other type falls
+ * through to the next factory (SimpleXML). Parse failures are wrapped in a [RuntimeException], the same as the
+ * SimpleXML converter, so callers see the same errors either way.
+ */
+class XmlPullConverterFactory : Converter.Factory() {
+    override fun responseBodyConverter(type: Type, annotations: Array<Annotation>, retrofit: Retrofit): Converter<ResponseBody, *>? {
+        return when (type) {
+            CollectionResponse::class.java -> Converter<ResponseBody, CollectionResponse> { body ->
+                body.use { parse { CollectionResponseParser.parse(it.charStream()) } }
+            }
+            PlaysResponse::class.java -> Converter<ResponseBody, PlaysResponse> { body ->
+                body.use { parse { PlaysResponseParser.parse(it.charStream()) } }
+            }
+            else -> null
+        }
+    }
+
+    private inline fun <T> parse(block: () -> T): T {
+        try {
+            return block()
+        } catch (e: XmlPullParserException) {
+            throw RuntimeException(e)
+        }
+    }
+}
@@ -8,10 +8,10 @@ import java.util.List;
 public class PlaysResponse {
 	private static final int PAGE_SIZE = 100;
 
-	@Attribute(required = false) private String username;
-	@Attribute(required = false) private int userid;
-	@Attribute(required = false) private int total;
-	@Attribute(required = false) private int page;
+	@Attribute(required = false) public String username;
+	@Attribute(required = false) public int userid;
+	@Attribute(required = false) public int total;
+	@Attribute(required = false) public int page;
 	@ElementList(inline = true, required = false) public List<Play> plays;
 
 	public boolean hasMorePages() {
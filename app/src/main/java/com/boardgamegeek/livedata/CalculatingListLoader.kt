@@ -22,15 +22,10 @@ abstract class CalculatingListLoader<T>(val application: BggApplication) {
             setValue(list ?: emptyList())
             if (shouldCalculate(list)) {
                 result.removeSource(dbSource)
-                application.appExecutors.diskIO.execute {
-                    val sortedList = sortList(list)
-                    sortedList?.forEachIndexed { index, item ->
-                        if (result.shouldCancel) {
-                            _progress.postValue(0 to 0)
-                            return@execute
-                        }
-                        _progress.postValue(index to sortedList.size)
-                        calculate(item)
+                application.appExecutors.computation.execute {
+                    if (!calculate(list.orEmpty())) {
+                        _progress.postValue(0 to 0)
+                        return@execute
                     }
                     application.appExecutors.mainThread.execute {
                         _progress.value = 0 to 0
@@ -59,11 +54,25 @@ abstract class CalculatingListLoader<T>(val application: BggApplication) {
     @MainThread
     protected open fun shouldCalculate(data: List<T>?): Boolean = true
 
+    /**
+     * True once the result is no longer observed; a calculation in progress should stop at the next opportunity.
+     */
+    protected val isCancelled: Boolean
+        get() = result.shouldCancel
+
     @WorkerThread
-    protected open fun sortList(data: List<T>?): List<T>? = data
+    protected fun postProgress(current: Int, total: Int) {
+        _progress.postValue(current to total)
+    }
 
+    /**
+     * Calculates the whole list at once, reporting its steps with [postProgress] and checking [isCancelled] between
+     * them.
+     *
+     * @return false if the calculation was cancelled before it finished
+     */
     @WorkerThread
-    protected abstract fun calculate(data: T)
+    protected abstract fun calculate(data: List<T>): Boolean
 
     @MainThread
     protected open fun finishCalculating() {
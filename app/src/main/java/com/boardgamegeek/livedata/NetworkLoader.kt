@@ -30,7 +30,7 @@ abstract class NetworkLoader<T, U>(val application: BggApplication) {
                     if (response?.isSuccessful == true) {
                         val body = response.body()
                         if (body != null) {
-                            application.appExecutors.diskIO.execute {
+                            application.appExecutors.computation.execute {
                                 val parsedResult = parseResult(body)
                                 onRefreshSucceeded()
                                 application.appExecutors.mainThread.execute {
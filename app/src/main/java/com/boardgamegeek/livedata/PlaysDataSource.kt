@@ -0,0 +1,63 @@
+package com.boardgamegeek.livedata
+
+import android.content.Context
+import android.database.ContentObserver
+import androidx.paging.DataSource
+import androidx.paging.ItemKeyedDataSource
+import com.boardgamegeek.db.PlayDao
+import com.boardgamegeek.entities.PlayEntity
+import com.boardgamegeek.provider.BggContract.Plays
+
+/**
+ * Pages through the plays keyed on the play at the edge of what's been loaded, so each page is a seek rather than an
+ * offset. Invalidates itself when plays change; the [Factory] creates the replacement starting from the same play.
+ */
+class PlaysDataSource(
+        private val context: Context,
+        private val playDao: PlayDao,
+        private val sortBy: PlayDao.PlaysSortBy
+) : ItemKeyedDataSource<PlayEntity, PlayEntity>() {
+    private val contentObserver = object : ContentObserver(null) {
+        override fun onChange(selfChange: Boolean) {
+            invalidate()
+        }
+    }
+
+    init {
+        context.contentResolver.registerContentObserver(Plays.CONTENT_URI, true, contentObserver)
+        addInvalidatedCallback { context.contentResolver.unregisterContentObserver(contentObserver) }
+    }
+
+    override fun getKey(item: PlayEntity) = item
+
+    /**
+     * Loads the page around the requested key, including the key play, so a list rebuilt after a change stays where it
+     * was rather than jumping to the play after it.
+     */
+    override fun loadInitial(params: LoadInitialParams<PlayEntity>, callback: LoadInitialCallback<PlayEntity>) {
+        val key = params.requestedInitialKey
+        if (key == null) {
+            callback.onResult(playDao.loadPlaysPage(sortBy, null, false, params.requestedLoadSize))
+        } else {
+            val before = playDao.loadPlaysPage(sortBy, key, true, params.requestedLoadSize / 2)
+            val after = playDao.loadPlaysPage(sortBy, key, false, params.requestedLoadSize - before.size, includeKey = true)
+            callback.onResult(before + after)
+        }
+    }
+
+    override fun loadAfter(params: LoadParams<PlayEntity>, callback: LoadCallback<PlayEntity>) {
+        callback.onResult(playDao.loadPlaysPage(sortBy, params.key, false, params.requestedLoadSize))
+    }
+
+    override fun loadBefore(params: LoadParams<PlayEntity>, callback: LoadCallback<PlayEntity>) {
+        callback.onResult(playDao.loadPlaysPage(sortBy, params.key, true, params.requestedLoadSize))
+    }
+
+    class Factory(
+            private val context: Context,
+            private val playDao: PlayDao,
+            private val sortBy: PlayDao.PlaysSortBy
+    ) : DataSource.Factory<PlayEntity, PlayEntity>() {
+        override fun create(): DataSource<PlayEntity, PlayEntity> = PlaysDataSource(context, playDao, sortBy)
+    }
+}
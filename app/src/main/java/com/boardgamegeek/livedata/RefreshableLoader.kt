@@ -0,0 +1,119 @@
+package com.boardgamegeek.livedata
+
+import androidx.annotation.MainThread
+import androidx.annotation.StringRes
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MediatorLiveData
+import com.boardgamegeek.BggApplication
+import com.boardgamegeek.R
+import com.boardgamegeek.entities.RefreshableResource
+import com.boardgamegeek.extensions.isOffline
+import retrofit2.Call
+
+/**
+ * Loads data from the database, refreshing it first if [shouldRefresh]. Subclasses perform the refresh in [fetch], then
+ * report how it went with [showSuccess] or one of the [showError] methods.
+ */
+abstract class RefreshableLoader<T>(val application: BggApplication) {
+    protected val result = CancelableMediatorLiveData<RefreshableResource<T>>()
+
+    init {
+        @Suppress("LeakingThis")
+        val dbSource = loadFromDatabase()
+        result.addSource(dbSource) { data ->
+            result.removeSource(dbSource)
+            if (shouldRefresh(data)) {
+                refresh(dbSource)
+            } else {
+                result.addSource(dbSource) { newData -> setValue(RefreshableResource.success(newData)) }
+            }
+        }
+    }
+
+    fun asLiveData() = result as LiveData<RefreshableResource<T>>
+
+    @MainThread
+    protected fun setValue(newValue: RefreshableResource<T>) {
+        if (result.value != newValue) {
+            result.value = newValue
+        }
+    }
+
+    @MainThread
+    protected abstract fun loadFromDatabase(): LiveData<T>
+
+    @MainThread
+    protected abstract fun shouldRefresh(data: T?): Boolean
+
+    private fun refresh(dbSource: LiveData<T>) {
+        val isOffline = application.isOffline()
+        result.addSource(dbSource) { newData ->
+            if (isOffline) {
+                setValue(RefreshableResource.error(application.getString(R.string.msg_offline), newData))
+            } else {
+                setValue(RefreshableResource.refreshing(newData))
+            }
+        }
+        if (!isOffline) fetch(dbSource)
+    }
+
+    /**
+     * Refreshes the data. [dbSource] is observed as refreshing until the fetch reports its result.
+     */
+    @MainThread
+    protected abstract fun fetch(dbSource: LiveData<T>)
+
+    @MainThread
+    protected fun showSuccess(dbSource: LiveData<T>) {
+        result.removeSource(dbSource)
+        result.addSource(dbSource) { newData -> setValue(RefreshableResource.success(newData)) }
+    }
+
+    @MainThread
+    protected fun showError(dbSource: LiveData<T>, message: String) {
+        result.removeSource(dbSource)
+        result.addSource(dbSource) { newData -> setValue(RefreshableResource.error(message, newData)) }
+    }
+
+    @MainThread
+    protected fun showError(dbSource: LiveData<T>, t: Throwable?) {
+        result.removeSource(dbSource)
+        result.addSource(dbSource) { newData -> setValue(RefreshableResource.error(t, newData)) }
+    }
+
+    protected fun getHttpErrorMessage(httpCode: Int): String {
+        @StringRes val resId: Int = when {
+            httpCode >= 500 -> R.string.msg_sync_response_500
+            httpCode == 429 -> R.string.msg_sync_response_429
+            else -> R.string.msg_sync_error_http_code
+        }
+        return application.getString(resId, httpCode.toString())
+    }
+
+    /**
+     * Cancels the call in flight, if any, once nothing is observing the result. Work that isn't a call can check
+     * [isInactive] instead.
+     */
+    protected class CancelableMediatorLiveData<T> : MediatorLiveData<T>() {
+        var call: Call<*>? = null
+
+        @Volatile
+        var isInactive = true
+            private set
+
+        fun updateCall(call: Call<*>) {
+            this.call = call
+        }
+
+        override fun onActive() {
+            super.onActive()
+            isInactive = false
+        }
+
+        override fun onInactive() {
+            super.onInactive()
+            isInactive = true
+            call?.cancel()
+        }
+    }
+}
@@ -1,65 +1,23 @@
 package com.boardgamegeek.livedata
 
 import androidx.annotation.MainThread
-import androidx.annotation.StringRes
 import androidx.annotation.WorkerThread
 import androidx.lifecycle.LiveData
-import androidx.lifecycle.MediatorLiveData
 import com.boardgamegeek.BggApplication
 import com.boardgamegeek.R
 import com.boardgamegeek.entities.RefreshableResource
-import com.boardgamegeek.extensions.isOffline
 import retrofit2.Call
 import retrofit2.Callback
 import retrofit2.Response
 
-abstract class RefreshableResourceLoader<T, U>(val application: BggApplication) {
-    private val result = CancelableMediatorLiveData<RefreshableResource<T>>()
+abstract class RefreshableResourceLoader<T, U>(application: BggApplication) : RefreshableLoader<T>(application) {
     private var page = 0
 
-    init {
-        @Suppress("LeakingThis")
-        val dbSource = loadFromDatabase()
-        result.addSource(dbSource) { data ->
-            result.removeSource(dbSource)
-            if (shouldRefresh(data)) {
-                refresh(dbSource)
-            } else {
-                result.addSource(dbSource) { newData -> setValue(RefreshableResource.success(newData)) }
-            }
-        }
-    }
-
-    fun asLiveData() = result as LiveData<RefreshableResource<T>>
-
-    @MainThread
-    private fun setValue(newValue: RefreshableResource<T>) {
-        if (result.value != newValue) {
-            result.value = newValue
-        }
-    }
-
     protected abstract val typeDescriptionResId: Int
 
-    @MainThread
-    protected abstract fun loadFromDatabase(): LiveData<T>
-
-    @MainThread
-    protected abstract fun shouldRefresh(data: T?): Boolean
-
-    private fun refresh(dbSource: LiveData<T>) {
-        val isOffline = application.isOffline()
-        result.addSource(dbSource) { newData ->
-            if (isOffline) {
-                setValue(RefreshableResource.error(application.getString(R.string.msg_offline), newData))
-            } else {
-                setValue(RefreshableResource.refreshing(newData))
-            }
-        }
-        if (!isOffline) {
-            page = 1
-            makeCall(page, dbSource)
-        }
+    override fun fetch(dbSource: LiveData<T>) {
+        page = 1
+        makeCall(page, dbSource)
     }
 
     @MainThread
@@ -73,7 +31,7 @@ abstract class RefreshableResourceLoader<T, U>(val application: BggApplication)
                     if (response?.isSuccessful == true) {
                         val body = response.body()
                         if (body != null) {
-                            application.appExecutors.diskIO.execute {
+                            application.appExecutors.diskWrite.execute {
                                 saveCallResult(body)
                                 application.appExecutors.mainThread.execute {
                                     if (hasMorePages(body, currentPage)) {
@@ -83,7 +41,7 @@ abstract class RefreshableResourceLoader<T, U>(val application: BggApplication)
                                         page++
                                         makeCall(page, dbSource)
                                     } else {
-                                        application.appExecutors.diskIO.execute { onRefreshSucceeded() }
+                                        application.appExecutors.diskWrite.execute { onRefreshSucceeded() }
                                         result.addSource(loadFromDatabase()) { newData ->
                                             setValue(RefreshableResource.success(newData))
                                         }
@@ -91,32 +49,23 @@ abstract class RefreshableResourceLoader<T, U>(val application: BggApplication)
                                 }
                             }
                         } else {
-                            application.appExecutors.diskIO.execute { onRefreshFailed() }
-                            result.addSource(dbSource) { newData ->
-                                setValue(RefreshableResource.error(application.getString(R.string.msg_update_invalid_response, application.getString(typeDescriptionResId)), newData))
-                            }
+                            application.appExecutors.diskWrite.execute { onRefreshFailed() }
+                            showError(dbSource, application.getString(R.string.msg_update_invalid_response, application.getString(typeDescriptionResId)))
                         }
                     } else {
-                        application.appExecutors.diskIO.execute { onRefreshFailed() }
-                        result.addSource(dbSource) { newData ->
-                            setValue(RefreshableResource.error(getHttpErrorMessage(response?.code() ?: 500), newData))
-                        }
+                        application.appExecutors.diskWrite.execute { onRefreshFailed() }
+                        showError(dbSource, getHttpErrorMessage(response?.code() ?: 500))
                     }
                 }
 
                 override fun onFailure(call: Call<U>?, t: Throwable?) {
-                    result.removeSource(dbSource)
-                    application.appExecutors.diskIO.execute { onRefreshFailed() }
-                    result.addSource(dbSource) { newData ->
-                        setValue(RefreshableResource.error(t, newData))
-                    }
+                    application.appExecutors.diskWrite.execute { onRefreshFailed() }
+                    showError(dbSource, t)
                 }
             })
         } else {
-            application.appExecutors.diskIO.execute { onRefreshCancelled() }
-            result.addSource(dbSource) { newData ->
-                setValue(RefreshableResource.success(newData))
-            }
+            application.appExecutors.diskWrite.execute { onRefreshCancelled() }
+            showSuccess(dbSource)
         }
     }
 
@@ -140,26 +89,4 @@ abstract class RefreshableResourceLoader<T, U>(val application: BggApplication)
     @WorkerThread
     protected open fun onRefreshCancelled() {
     }
-
-    private fun getHttpErrorMessage(httpCode: Int): String {
-        @StringRes val resId: Int = when {
-            httpCode >= 500 -> R.string.msg_sync_response_500
-            httpCode == 429 -> R.string.msg_sync_response_429
-            else -> R.string.msg_sync_error_http_code
-        }
-        return application.getString(resId, httpCode.toString())
-    }
-
-    private class CancelableMediatorLiveData<T> : MediatorLiveData<T>() {
-        var call: Call<*>? = null
-
-        fun updateCall(call: Call<*>) {
-            this.call = call
-        }
-
-        override fun onInactive() {
-            super.onInactive()
-            call?.cancel()
-        }
-    }
 }
@@ -8,6 +8,7 @@ import androidx.lifecycle.MutableLiveData
 import com.boardgamegeek.BggApplication
 import com.boardgamegeek.util.RateLimiter
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 open class RegisteredLiveData<T>(val application: BggApplication,
                                  val uri: Uri,
@@ -20,6 +21,7 @@ open class RegisteredLiveData<T>(val application: BggApplication,
     val handler = Handler()
     private val key = 0
     private val token = "RegisteredLiveData"
+    private val generation = AtomicInteger()
 
     override fun onActive() {
         super.onActive()
@@ -44,9 +46,17 @@ open class RegisteredLiveData<T>(val application: BggApplication,
         }
     }
 
+    /**
+     * Reloads the data on the disk read pool. Loads can overlap there, so a load only posts its result if no later load
+     * has started; otherwise an older result could overwrite a newer one.
+     */
     private fun updateData() {
-        application.appExecutors.diskIO.execute {
-            postValue(loadData())
+        val loadGeneration = generation.incrementAndGet()
+        application.appExecutors.diskRead.execute {
+            val data = loadData()
+            synchronized(generation) {
+                if (loadGeneration == generation.get()) postValue(data)
+            }
             rateLimiter.reset(key)
         }
     }
@@ -66,7 +66,7 @@ abstract class BaseProvider {
     }
 
     private fun notifyChange(context: Context, uri: Uri) {
-        context.contentResolver.notifyChange(uri, null)
+        BggProvider.notifyChange(context, uri)
     }
 
     @Throws(FileNotFoundException::class)
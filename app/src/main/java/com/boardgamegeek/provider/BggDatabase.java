@@ -5,6 +5,8 @@ import android.content.SharedPreferences;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
 import android.os.Environment;
 
 import com.boardgamegeek.extensions.TaskUtils;
@@ -105,7 +107,9 @@ public class BggDatabase extends SQLiteOpenHelper {
 	private static final int VER_WHITMORE_SCORE = 55;
 	private static final int VER_DAP_STATS_UPDATED_TIMESTAMP = 56;
 	private static final int VER_RECOMMENDED_PLAYER_COUNTS = 57;
-	private static final int DATABASE_VERSION = VER_RECOMMENDED_PLAYER_COUNTS;
+	private static final int VER_INDEXES = 58;
+	private static final int DATABASE_VERSION = VER_INDEXES;
+	private static final long IDLE_CONNECTION_TIMEOUT_MS = 30_000L;
 
 	private final Context context;
 	private final SharedPreferences syncPrefs;
@@ -187,6 +191,8 @@ public class BggDatabase extends SQLiteOpenHelper {
 			CollectionViews._ID, CollectionViewFilters.VIEW_ID);
 		String POLLS_RESULTS_RESULT_JOIN_POLLS_RESULTS_JOIN_POLLS = createJoin(GAME_POLL_RESULTS_RESULT, GAME_POLL_RESULTS, GamePollResultsResult.POLL_RESULTS_ID, GamePollResults._ID) +
 			createJoinSuffix(Tables.GAME_POLL_RESULTS, Tables.GAME_POLLS, GamePollResults.POLL_ID, GamePolls._ID);
+		String POLLS_JOIN_POLL_RESULTS_JOIN_POLL_RESULTS_RESULT = POLLS_JOIN_POLL_RESULTS +
+			createJoinSuffix(GAME_POLL_RESULTS, GAME_POLL_RESULTS_RESULT, GamePollResults._ID, GamePollResultsResult.POLL_RESULTS_ID);
 
 		String ARTIST_JOIN_GAMES_JOIN_COLLECTION = createJoin(GAMES_ARTISTS, GAMES, Games.GAME_ID) + createJoinSuffix(GAMES, COLLECTION, Games.GAME_ID, Collection.GAME_ID);
 		String DESIGNER_JOIN_GAMES_JOIN_COLLECTION = createJoin(GAMES_DESIGNERS, GAMES, Games.GAME_ID) + createJoinSuffix(GAMES, COLLECTION, Games.GAME_ID, Collection.GAME_ID);
@@ -225,6 +231,12 @@ public class BggDatabase extends SQLiteOpenHelper {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
 		this.context = context;
 		syncPrefs = SyncPrefs.getPrefs(context);
+		// Write-ahead logging lets the connection pool serve reads while a sync holds the write transaction. The pool
+		// size is set by the platform (4 on most devices); close idle connections so they don't hold memory.
+		setWriteAheadLoggingEnabled(true);
+		if (VERSION.SDK_INT >= VERSION_CODES.P) {
+			setIdleConnectionTimeout(IDLE_CONNECTION_TIMEOUT_MS);
+		}
 	}
 
 	@Override
@@ -267,6 +279,27 @@ public class BggDatabase extends SQLiteOpenHelper {
 
 		buildCollectionViewsTable().create(db);
 		buildCollectionViewFiltersTable().create(db);
+
+		createIndexes(db);
+	}
+
+	/**
+	 * Indexes the columns that hot queries filter, join, and sort on. Safe to call on a database that already has them.
+	 */
+	private void createIndexes(SQLiteDatabase db) {
+		createIndex(db, Tables.GAMES, Games.UPDATED_LIST);
+		createIndex(db, Tables.PLAYS, Plays.OBJECT_ID);
+		createIndex(db, Tables.PLAYS, Plays.PLAY_ID);
+		createIndex(db, Tables.PLAYS, Plays.DATE);
+		createIndex(db, Tables.PLAY_PLAYERS, PlayPlayers._PLAY_ID);
+		createIndex(db, Tables.PLAY_PLAYERS, PlayPlayers.USER_NAME);
+		createIndex(db, Tables.PLAY_PLAYERS, PlayPlayers.NAME);
+		createIndex(db, Tables.COLLECTION, Collection.GAME_ID);
+		createIndex(db, Tables.COLLECTION, Collection.COLLECTION_ID);
+	}
+
+	private void createIndex(SQLiteDatabase db, String table, String column) {
+		db.execSQL(String.format("CREATE INDEX IF NOT EXISTS index_%1$s_%2$s ON %1$s(%2$s)", table, column));
 	}
 
 	private TableBuilder buildDesignersTable() {
@@ -894,6 +927,9 @@ public class BggDatabase extends SQLiteOpenHelper {
 					addColumn(db, Tables.GAMES, Games.PLAYER_COUNTS_NOT_RECOMMENDED, COLUMN_TYPE.TEXT);
 					TaskUtils.executeAsyncTask(new ResetGamesTask(context));
 					version = VER_RECOMMENDED_PLAYER_COUNTS;
+				case VER_RECOMMENDED_PLAYER_COUNTS:
+					createIndexes(db);
+					version = VER_INDEXES;
 			}
 
 			if (version != DATABASE_VERSION) {
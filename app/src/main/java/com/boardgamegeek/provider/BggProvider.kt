@@ -1,7 +1,11 @@
 package com.boardgamegeek.provider
 
 import android.content.ContentProvider
+import android.content.ContentProviderOperation
+import android.content.ContentProviderResult
 import android.content.ContentValues
+import android.content.Context
+import android.content.OperationApplicationException
 import android.content.UriMatcher
 import android.database.Cursor
 import android.net.Uri
@@ -9,6 +13,7 @@ import android.os.ParcelFileDescriptor
 import androidx.collection.SimpleArrayMap
 import androidx.core.content.contentValuesOf
 import java.io.FileNotFoundException
+import java.util.concurrent.atomic.AtomicLong
 
 class BggProvider : ContentProvider() {
     private lateinit var openHelper: BggDatabase
@@ -32,20 +37,70 @@ class BggProvider : ContentProvider() {
     override fun insert(uri: Uri, values: ContentValues?): Uri? {
         return getProvider(uri)?.insert(context!!, openHelper.writableDatabase, uri,
                 values ?: contentValuesOf())?.also {
-            context?.contentResolver?.notifyChange(it, null)
+            notifyChange(context!!, it)
+            onWrite(uri, null)
         }
     }
 
     override fun update(uri: Uri, values: ContentValues?, selection: String?, selectionArgs: Array<String>?): Int {
-        return getProvider(uri)?.update(context!!, openHelper.writableDatabase, uri, values, selection, selectionArgs)
-                ?: 0
+        return (getProvider(uri)?.update(context!!, openHelper.writableDatabase, uri, values, selection, selectionArgs)
+                ?: 0).also { if (it > 0) onWrite(uri, values) }
     }
 
     override fun delete(uri: Uri, selection: String?, selectionArgs: Array<String>?): Int {
-        return getProvider(uri)?.delete(context!!,
+        return (getProvider(uri)?.delete(context!!,
                 openHelper.writableDatabase,
                 uri, selection, selectionArgs)
-                ?: 0
+                ?: 0).also { if (it > 0) onWrite(uri, null) }
+    }
+
+    /**
+     * Bumps [playsGeneration] if the write could change the play stats. [values] are the columns updated, or null for an
+     * insert or delete.
+     */
+    private fun onWrite(uri: Uri, values: ContentValues?) {
+        val columns = values?.keySet()
+        val isRow = uri.pathSegments.size <= 2 // a table or one of its rows, not a child like games/#/ranks
+        val isPlayStatsInput = when (uri.pathSegments.firstOrNull()) {
+            // a sync stamps every unchanged play it downloads, which changes nothing the stats read
+            BggContract.PATH_PLAYS -> columns == null || columns.any { it != BggContract.Plays.SYNC_TIMESTAMP }
+            BggContract.PATH_GAMES -> isRow && (columns == null || columns.any { it in GAME_STATS_COLUMNS })
+            BggContract.PATH_COLLECTION -> isRow && (columns == null || columns.any { it in COLLECTION_STATS_COLUMNS })
+            else -> false
+        }
+        if (isPlayStatsInput) playsGenerationCounter.incrementAndGet()
+    }
+
+    /**
+     * Apply the entire batch inside a single transaction. Operations marked with [ContentProviderOperation.isYieldAllowed]
+     * act as yield points, letting other connections in between long batches.
+     *
+     * Change notifications are held until the batch ends, then sent once per root URI (e.g. `plays` or `collection`)
+     * that was written, so observers reload once per batch instead of once per row. They're sent even if the batch
+     * fails, since yields may have committed part of it.
+     */
+    @Throws(OperationApplicationException::class)
+    override fun applyBatch(operations: ArrayList<ContentProviderOperation>): Array<ContentProviderResult> {
+        val db = openHelper.writableDatabase
+        val isOutermostBatch = pendingNotifications.get() == null
+        if (isOutermostBatch) pendingNotifications.set(mutableSetOf())
+        db.beginTransaction()
+        try {
+            val results = arrayOfNulls<ContentProviderResult>(operations.size)
+            operations.forEachIndexed { i, operation ->
+                if (i > 0 && operation.isYieldAllowed) db.yieldIfContendedSafely()
+                results[i] = operation.apply(this, results, i)
+            }
+            db.setTransactionSuccessful()
+            return results.requireNoNulls()
+        } finally {
+            db.endTransaction()
+            if (isOutermostBatch) {
+                val uris = pendingNotifications.get().orEmpty()
+                pendingNotifications.remove()
+                uris.forEach { context?.contentResolver?.notifyChange(it, null) }
+            }
+        }
     }
 
     @Throws(FileNotFoundException::class)
@@ -62,6 +117,37 @@ class BggProvider : ContentProvider() {
     }
 
     companion object {
+        private val playsGenerationCounter = AtomicLong()
+        private val GAME_STATS_COLUMNS = setOf(BggContract.Games.GAME_ID, BggContract.Games.SUBTYPE, BggContract.Games.GAME_RANK)
+        private val COLLECTION_STATS_COLUMNS = setOf(BggContract.Collection.GAME_ID, BggContract.Collection.STATUS_OWN)
+
+        /**
+         * Changes whenever anything the play stats are calculated from is written - the content of a play or its
+         * players, or the subtype, rank, or owned status of a game - so the stats can cheaply tell whether they're
+         * stale. Starts over with each process, so compare only to values read in this process.
+         */
+        val playsGeneration: Long
+            get() = playsGenerationCounter.get()
+
+        /**
+         * The root URIs changed by the batch being applied on this thread, or null if it isn't applying a batch.
+         */
+        private val pendingNotifications = ThreadLocal<MutableSet<Uri>>()
+
+        /**
+         * Notifies observers that [uri] changed - right away, or at the end of the batch if one is being applied on
+         * this thread.
+         */
+        internal fun notifyChange(context: Context, uri: Uri) {
+            val pending = pendingNotifications.get()
+            if (pending == null) {
+                context.contentResolver.notifyChange(uri, null)
+            } else {
+                val root = uri.pathSegments.firstOrNull()
+                pending += if (root == null) uri else Uri.Builder().scheme(uri.scheme).authority(uri.authority).appendPath(root).build()
+            }
+        }
+
         private val uriMatcher = UriMatcher(UriMatcher.NO_MATCH)
         private val providers = buildProviderMap()
         private var uriMatchCode = 1
@@ -91,6 +177,14 @@ class BggProvider : ContentProvider() {
             addProvider(map, GamesPublishersIdProvider())
             addProvider(map, GamesMechanicsIdProvider())
             addProvider(map, GamesCategoriesIdProvider())
+            addProvider(map, GamesDesignersProvider())
+            addProvider(map, GamesArtistsProvider())
+            addProvider(map, GamesPublishersProvider())
+            addProvider(map, GamesMechanicsProvider())
+            addProvider(map, GamesCategoriesProvider())
+            addProvider(map, GamesExpansionsProvider())
+            addProvider(map, GamesSuggestedPlayerCountPollResultsProvider())
+            addProvider(map, GamesPollsResultsResultProvider())
             addProvider(map, GamesIdSuggestedPlayerCountPollResultsProvider())
             addProvider(map, GamesIdSuggestedPlayerCountPollResultProvider())
             addProvider(map, GamesIdPollsProvider())
@@ -105,12 +199,15 @@ class BggProvider : ContentProvider() {
             addProvider(map, GamesIdPlaysProvider())
             addProvider(map, DesignersProvider())
             addProvider(map, DesignersIdProvider())
+            addProvider(map, DesignersCollectionProvider())
             addProvider(map, DesignersIdCollectionProvider())
             addProvider(map, ArtistsProvider())
             addProvider(map, ArtistsIdProvider())
+            addProvider(map, ArtistsCollectionProvider())
             addProvider(map, ArtistsIdCollectionProvider())
             addProvider(map, PublishersProvider())
             addProvider(map, PublishersIdProvider())
+            addProvider(map, PublishersCollectionProvider())
             addProvider(map, PublishersIdCollectionProvider())
             addProvider(map, MechanicsProvider())
             addProvider(map, MechanicsIdProvider())
@@ -0,0 +1,16 @@
+package com.boardgamegeek.provider
+
+import android.net.Uri
+import com.boardgamegeek.provider.BggContract.*
+import com.boardgamegeek.provider.BggDatabase.Tables
+import com.boardgamegeek.util.SelectionBuilder
+
+class GamesCategoriesProvider : BaseProvider() {
+    override fun getType(uri: Uri) = Categories.CONTENT_TYPE
+
+    override val path = "$PATH_GAMES/$PATH_CATEGORIES"
+
+    override fun buildSimpleSelection(uri: Uri): SelectionBuilder {
+        return SelectionBuilder().table(Tables.GAMES_CATEGORIES)
+    }
+}
@@ -0,0 +1,16 @@
+package com.boardgamegeek.provider
+
+import android.net.Uri
+import com.boardgamegeek.provider.BggContract.*
+import com.boardgamegeek.provider.BggDatabase.Tables
+import com.boardgamegeek.util.SelectionBuilder
+
+class GamesMechanicsProvider : BaseProvider() {
+    override fun getType(uri: Uri) = Mechanics.CONTENT_TYPE
+
+    override val path = "$PATH_GAMES/$PATH_MECHANICS"
+
+    override fun buildSimpleSelection(uri: Uri): SelectionBuilder {
+        return SelectionBuilder().table(Tables.GAMES_MECHANICS)
+    }
+}
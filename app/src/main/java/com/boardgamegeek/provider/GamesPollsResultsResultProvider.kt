@@ -0,0 +1,24 @@
+package com.boardgamegeek.provider
+
+import android.net.Uri
+import android.provider.BaseColumns
+import com.boardgamegeek.provider.BggContract.*
+import com.boardgamegeek.provider.BggDatabase.Tables
+import com.boardgamegeek.util.SelectionBuilder
+
+/**
+ * Every poll of every game, joined to its results and their result rows. Polls and results without any rows under them
+ * are still included, with the missing columns null.
+ */
+class GamesPollsResultsResultProvider : BaseProvider() {
+    override fun getType(uri: Uri) = GamePollResultsResult.CONTENT_TYPE
+
+    override val path = "$PATH_GAMES/$PATH_POLLS/$PATH_POLL_RESULTS/$PATH_POLL_RESULTS_RESULT"
+
+    override fun buildSimpleSelection(uri: Uri): SelectionBuilder {
+        return SelectionBuilder()
+                .table(Tables.POLLS_JOIN_POLL_RESULTS_JOIN_POLL_RESULTS_RESULT)
+                .mapToTable(BaseColumns._ID, Tables.GAME_POLLS)
+                .mapToTable(GamePolls.GAME_ID, Tables.GAME_POLLS)
+    }
+}
@@ -0,0 +1,16 @@
+package com.boardgamegeek.provider
+
+import android.net.Uri
+import com.boardgamegeek.provider.BggContract.*
+import com.boardgamegeek.provider.BggDatabase.Tables
+import com.boardgamegeek.util.SelectionBuilder
+
+class GamesSuggestedPlayerCountPollResultsProvider : BaseProvider() {
+    override fun getType(uri: Uri) = GameSuggestedPlayerCountPollPollResults.CONTENT_TYPE
+
+    override val path = "$PATH_GAMES/$PATH_SUGGESTED_PLAYER_COUNT_POLL_RESULTS"
+
+    override fun buildSimpleSelection(uri: Uri): SelectionBuilder {
+        return SelectionBuilder().table(Tables.GAME_SUGGESTED_PLAYER_COUNT_POLL_RESULTS)
+    }
+}
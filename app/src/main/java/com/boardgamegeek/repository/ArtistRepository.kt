@@ -51,13 +51,21 @@ class ArtistRepository(val application: BggApplication) {
                 return data != null && lastCalculated.isOlderThan(1, TimeUnit.HOURS)
             }
 
-            override fun sortList(data: List<PersonEntity>?) = data?.sortedBy { it.statsUpdatedTimestamp }
-
-            override fun calculate(data: PersonEntity) {
-                if (data.statsUpdatedTimestamp > data.updatedTimestamp) return
-                val collection = dao.loadCollection(data.id)
-                val statsEntity = PersonStatsEntity.fromLinkedCollection(collection, application)
-                updateWhitmoreScore(data.id, statsEntity.whitmoreScore, data.whitmoreScore)
+            override fun calculate(data: List<PersonEntity>): Boolean {
+                val stale = data.filter { it.statsUpdatedTimestamp <= it.updatedTimestamp }
+                if (stale.isEmpty()) return true
+                postProgress(0, 2)
+                val collections = dao.loadCollections()
+                if (isCancelled) return false
+                postProgress(1, 2)
+                val scores = mutableMapOf<Int, Int>()
+                stale.forEach {
+                    val statsEntity = PersonStatsEntity.fromLinkedCollection(collections[it.id].orEmpty(), application)
+                    if (statsEntity.whitmoreScore != it.whitmoreScore) scores[it.id] = statsEntity.whitmoreScore
+                }
+                if (isCancelled) return false
+                dao.updateWhitmoreScores(scores)
+                return true
             }
 
             override fun finishCalculating() {
@@ -118,7 +126,7 @@ class ArtistRepository(val application: BggApplication) {
         }.asLiveData()
         mediatorLiveData.addSource(liveData) {
             it?.data?.maybeRefreshHeroImageUrl("artist", started) { url ->
-                application.appExecutors.diskIO.execute {
+                application.appExecutors.diskWrite.execute {
                     dao.update(id, ContentValues().apply {
                         put(Artists.ARTIST_HERO_IMAGE_URL, url)
                     })
@@ -138,7 +146,7 @@ class ArtistRepository(val application: BggApplication) {
         mediatorLiveData.addSource(dao.loadCollectionAsLiveData(id)) { collection ->
             val linkedCollection = PersonStatsEntity.fromLinkedCollection(collection, application)
             mediatorLiveData.value = linkedCollection
-            application.appExecutors.diskIO.execute {
+            application.appExecutors.diskWrite.execute {
                 updateWhitmoreScore(id, linkedCollection.whitmoreScore, -1)
             }
         }
@@ -38,19 +38,19 @@ class CollectionViewRepository(val context: BggApplication) {
 
     fun insertView(view: CollectionViewEntity): Long {
         // TODO get this off the main thread
-        // context.appExecutors.diskIO.execute {
+        // context.appExecutors.diskWrite.execute {
         return dao.insert(view)
         //}
     }
 
     fun updateView(view: CollectionViewEntity) {
-        context.appExecutors.diskIO.execute {
+        context.appExecutors.diskWrite.execute {
             dao.update(view)
         }
     }
 
     fun deleteView(viewId: Long) {
-        context.appExecutors.diskIO.execute {
+        context.appExecutors.diskWrite.execute {
             dao.delete(viewId)
         }
     }
@@ -85,7 +85,7 @@ class GameCollectionRepository(val application: BggApplication) {
         }.asLiveData()
         mediatorLiveData.addSource(liveData) {
             it?.data?.maybeRefreshHeroImageUrl("collection", started) { url ->
-                application.appExecutors.diskIO.execute {
+                application.appExecutors.diskWrite.execute {
                     dao.update(it.data.internalId, ContentValues().apply {
                         put(BggContract.Collection.COLLECTION_HERO_IMAGE_URL, url)
                     })
@@ -145,7 +145,7 @@ class GameCollectionRepository(val application: BggApplication) {
 
     fun addCollectionItem(gameId: Int, statuses: List<String>, wishListPriority: Int?) {
         if (gameId == BggContract.INVALID_ID) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             val values = contentValuesOf()
             values.put(BggContract.Collection.GAME_ID, gameId)
             putValue(statuses, values, BggContract.Collection.STATUS_OWN)
@@ -208,14 +208,14 @@ class GameCollectionRepository(val application: BggApplication) {
 
     fun update(internalId: Long, values: ContentValues) {
         if (internalId == BggContract.INVALID_ID.toLong()) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             dao.update(internalId, values)
         }
     }
 
     fun resetTimestamps(internalId: Long, gameId: Int, errorMessage: MutableLiveData<String>) {
         if (internalId == BggContract.INVALID_ID.toLong()) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             val values = contentValuesOf(
                     BggContract.Collection.COLLECTION_DIRTY_TIMESTAMP to 0,
                     BggContract.Collection.STATUS_DIRTY_TIMESTAMP to 0,
@@ -10,7 +10,6 @@ import com.boardgamegeek.auth.AccountUtils
 import com.boardgamegeek.db.GameDao
 import com.boardgamegeek.db.PlayDao
 import com.boardgamegeek.entities.*
-import com.boardgamegeek.extensions.executeAsyncTask
 import com.boardgamegeek.extensions.isOlderThan
 import com.boardgamegeek.io.Adapter
 import com.boardgamegeek.io.model.PlaysResponse
@@ -19,7 +18,7 @@ import com.boardgamegeek.livedata.RefreshableResourceLoader
 import com.boardgamegeek.mappers.GameMapper
 import com.boardgamegeek.mappers.PlayMapper
 import com.boardgamegeek.provider.BggContract
-import com.boardgamegeek.tasks.CalculatePlayStatsTask
+import com.boardgamegeek.tasks.PlayStatsScheduler
 import com.boardgamegeek.util.RemoteConfig
 import retrofit2.Call
 import timber.log.Timber
@@ -68,7 +67,7 @@ class GameRepository(val application: BggApplication) {
         }.asLiveData()
         mediatorLiveData.addSource(liveData) {
             it?.data?.maybeRefreshHeroImageUrl("game", started) { url ->
-                application.appExecutors.diskIO.execute {
+                application.appExecutors.diskWrite.execute {
                     dao.update(gameId, ContentValues().apply {
                         put(BggContract.Games.HERO_IMAGE_URL, url)
                     })
@@ -157,7 +156,7 @@ class GameRepository(val application: BggApplication) {
                     values.put(BggContract.Games.UPDATED_PLAYS, System.currentTimeMillis())
                     dao.update(gameId, values)
                 }
-                CalculatePlayStatsTask(application).executeAsyncTask()
+                PlayStatsScheduler.schedule(application)
                 isFullRefresh = false
             }
 
@@ -182,7 +181,7 @@ class GameRepository(val application: BggApplication) {
     fun addPlayColor(gameId: Int, color: String) {
         if (gameId == BggContract.INVALID_ID) return
         if (color.isBlank()) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             dao.insertColors(gameId, color)
         }
     }
@@ -190,21 +189,21 @@ class GameRepository(val application: BggApplication) {
     fun deletePlayColor(gameId: Int, color: String): Int {
         if (gameId == BggContract.INVALID_ID) return 0
         if (color.isBlank()) return 0
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             dao.deleteColor(gameId, color)
         }
         return 1
     }
 
     fun computePlayColors(gameId: Int) {
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             dao.computeColors(gameId)
         }
     }
 
     fun updateLastViewed(gameId: Int, lastViewed: Long = System.currentTimeMillis()) {
         if (gameId == BggContract.INVALID_ID) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             val values = contentValuesOf(BggContract.Games.LAST_VIEWED to lastViewed)
             dao.update(gameId, values)
         }
@@ -212,7 +211,7 @@ class GameRepository(val application: BggApplication) {
 
     fun updateGameColors(gameId: Int, iconColor: Int, darkColor: Int, winsColor: Int, winnablePlaysColor: Int, allPlaysColor: Int) {
         if (gameId == BggContract.INVALID_ID) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             val values = ContentValues(5)
             values.put(BggContract.Games.ICON_COLOR, iconColor)
             values.put(BggContract.Games.DARK_COLOR, darkColor)
@@ -226,7 +225,7 @@ class GameRepository(val application: BggApplication) {
 
     fun updateFavorite(gameId: Int, isFavorite: Boolean) {
         if (gameId == BggContract.INVALID_ID) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             val values = ContentValues()
             values.put(BggContract.Games.STARRED, if (isFavorite) 1 else 0)
             dao.update(gameId, values)
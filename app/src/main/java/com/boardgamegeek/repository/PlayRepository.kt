@@ -10,6 +10,7 @@ import androidx.core.content.contentValuesOf
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.Transformations
+import androidx.paging.PagedList
 import com.boardgamegeek.BggApplication
 import com.boardgamegeek.R
 import com.boardgamegeek.auth.AccountUtils
@@ -20,14 +21,13 @@ import com.boardgamegeek.entities.*
 import com.boardgamegeek.extensions.*
 import com.boardgamegeek.io.Adapter
 import com.boardgamegeek.io.model.PlaysResponse
+import com.boardgamegeek.livedata.RefreshableLoader
 import com.boardgamegeek.livedata.RefreshableResourceLoader
 import com.boardgamegeek.mappers.PlayMapper
-import com.boardgamegeek.pref.*
 import com.boardgamegeek.provider.BggContract
-import com.boardgamegeek.tasks.CalculatePlayStatsTask
+import com.boardgamegeek.service.PlaySyncCoordinator
 import com.boardgamegeek.ui.PlayStatsActivity
 import com.boardgamegeek.util.NotificationUtils
-import com.boardgamegeek.util.RateLimiter
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import retrofit2.Call
@@ -79,14 +79,29 @@ class PlayRepository(val application: BggApplication) {
         }.asLiveData()
     }
 
+    /**
+     * The data is a [androidx.paging.PagedList], so only the plays near what's on screen are held in memory.
+     */
     fun getPlays(sortBy: PlayDao.PlaysSortBy = PlayDao.PlaysSortBy.DATE): LiveData<RefreshableResource<List<PlayEntity>>> {
         return object : PlayRefreshableResourceLoader(application) {
             override fun loadFromDatabase(): LiveData<List<PlayEntity>> {
-                return playDao.loadPlays(sortBy)
+                return Transformations.map<PagedList<PlayEntity>, List<PlayEntity>>(playDao.loadPagedPlays(sortBy)) { it }
             }
         }.asLiveData()
     }
 
+    fun getRecentPlays(limit: Int): LiveData<RefreshableResource<List<PlayEntity>>> {
+        return object : PlayRefreshableResourceLoader(application) {
+            override fun loadFromDatabase(): LiveData<List<PlayEntity>> {
+                return playDao.loadRecentPlays(limit)
+            }
+        }.asLiveData()
+    }
+
+    fun loadPlayCount(): LiveData<Int> = playDao.loadPlayCount()
+
+    fun loadDraftPlays(): LiveData<List<PlayEntity>> = playDao.loadDraftPlays()
+
     fun getPendingPlays(): LiveData<RefreshableResource<List<PlayEntity>>> {
         return object : PlayRefreshableResourceLoader(application) {
             override fun loadFromDatabase(): LiveData<List<PlayEntity>> {
@@ -209,13 +224,13 @@ class PlayRepository(val application: BggApplication) {
     }
 
     fun savePlayerColors(playerName: String, colors: List<PlayerColorEntity>?) {
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             playDao.savePlayerColors(playerName, colors)
         }
     }
 
     fun saveUserColors(username: String, colors: List<PlayerColorEntity>?) {
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             playDao.saveUserColors(username, colors)
         }
     }
@@ -238,7 +253,7 @@ class PlayRepository(val application: BggApplication) {
                 BggContract.Plays.UPDATE_TIMESTAMP to 0,
                 BggContract.Plays.DIRTY_TIMESTAMP to 0,
         )
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             application.contentResolver.update(BggContract.Plays.buildPlayUri(internalId), values, null, null)
             updatedId?.postValue(internalId)
         }
@@ -250,7 +265,7 @@ class PlayRepository(val application: BggApplication) {
                 BggContract.Plays.DELETE_TIMESTAMP to 0,
                 BggContract.Plays.DIRTY_TIMESTAMP to 0,
         )
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             application.contentResolver.update(BggContract.Plays.buildPlayUri(internalId), values, null, null)
             updatedId?.postValue(internalId)
         }
@@ -262,7 +277,7 @@ class PlayRepository(val application: BggApplication) {
                 BggContract.Plays.UPDATE_TIMESTAMP to 0,
                 BggContract.Plays.DIRTY_TIMESTAMP to 0,
         )
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             application.contentResolver.update(BggContract.Plays.buildPlayUri(internalId), values, null, null)
             updatedId?.postValue(internalId)
         }
@@ -277,7 +292,7 @@ class PlayRepository(val application: BggApplication) {
         val batch = arrayListOf<ContentProviderOperation>()
         batch += playDao.createDirtyPlaysForUserAndNickNameOperations(username, nickName)
         batch += playDao.createNickNameUpdateOperation(username, nickName)
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             application.contentResolver.applyBatch(batch)
         }
         return count
@@ -289,7 +304,7 @@ class PlayRepository(val application: BggApplication) {
         batch += playDao.createRenameUpdateOperation(oldName, newName)
         batch += playDao.createCopyPlayerColorsOperations(oldName, newName)
         batch += playDao.createDeletePlayerColorsOperation(oldName)
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             application.contentResolver.applyBatch(batch)
         }
     }
@@ -312,7 +327,7 @@ class PlayRepository(val application: BggApplication) {
                 .withValues(values)
                 .withSelection("${BggContract.Plays.LOCATION}=? AND ${BggContract.Plays.UPDATE_TIMESTAMP.whereZeroOrNull()} AND ${BggContract.Plays.DELETE_TIMESTAMP.whereZeroOrNull()} AND ${BggContract.Plays.DIRTY_TIMESTAMP.whereZeroOrNull()}", arrayOf(oldLocationName))
         batch.add(cpo.build())
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             val results = application.contentResolver.applyBatch(batch)
             val result = RenameLocationResults(oldLocationName, newLocationName, results.sumBy { it.count ?:0 })
             resultLiveData?.postValue(result)
@@ -326,13 +341,13 @@ class PlayRepository(val application: BggApplication) {
         batch += playDao.createAddUsernameOperation(playerName, username)
         batch += playDao.createCopyPlayerColorsToUserOperations(playerName, username)
         batch += playDao.createDeletePlayerColorsOperation(playerName)
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             application.contentResolver.applyBatch(batch)
         }
     }
 
     fun save(play: PlayEntity, insertedId: MutableLiveData<Long>) {
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             val id = playDao.save(play)
 
             // if the play is "current" (for today and about to be synced), remember some things, like the location and players to be used in the next play
@@ -378,92 +393,42 @@ class PlayRepository(val application: BggApplication) {
 
     }
 
-    abstract class PlayRefreshableResourceLoader(application: BggApplication) : RefreshableResourceLoader<List<PlayEntity>, PlaysResponse>(application) {
+    /**
+     * Loads plays from the database, refreshing them with the [PlaySyncCoordinator] - joining the download the sync
+     * adapter or another screen already has in flight, if any.
+     */
+    abstract class PlayRefreshableResourceLoader(application: BggApplication) : RefreshableLoader<List<PlayEntity>>(application) {
         private val username: String? by lazy {
             AccountUtils.getUsername(application)
         }
-        private val syncPrefs: SharedPreferences by lazy { SyncPrefs.getPrefs(application.applicationContext) }
         private val prefs: SharedPreferences by lazy { application.preferences() }
 
-        private var syncInitiatedTimestamp = 0L
-        private val newestTimestamp = syncPrefs.getPlaysNewestTimestamp()
-        private val oldestTimestamp = syncPrefs.getPlaysOldestTimestamp()
-        private val mapper = PlayMapper()
-        private var refreshingNewest = false
-        private var lastNewPage = 0
-        private val playsRateLimiter = RateLimiter<Int>(10, TimeUnit.MINUTES)
-        private val playDao = PlayDao(application)
-
-        override val typeDescriptionResId: Int
-            get() = R.string.title_plays
-
         override fun shouldRefresh(data: List<PlayEntity>?): Boolean {
-            return prefs[PREFERENCES_KEY_SYNC_PLAYS, false] == true && playsRateLimiter.shouldProcess(0)
+            return prefs[PREFERENCES_KEY_SYNC_PLAYS, false] == true &&
+                    !username.isNullOrBlank() &&
+                    PlaySyncCoordinator.isRefreshDue()
         }
 
-        override fun createCall(page: Int): Call<PlaysResponse> {
-            if (page == 1) {
-                syncInitiatedTimestamp = System.currentTimeMillis()
-                refreshingNewest = true
-            }
-            if (refreshingNewest) lastNewPage = page
-            return if (refreshingNewest) {
-                Adapter.createForXml().plays(username,
-                        newestTimestamp?.asDateForApi(),
-                        null,
-                        page)
-            } else {
-                Adapter.createForXml().plays(username,
-                        null,
-                        oldestTimestamp.asDateForApi(),
-                        page - lastNewPage)
+        override fun fetch(dbSource: LiveData<List<PlayEntity>>) {
+            val user = username.orEmpty()
+            // stops the download, or stops waiting for the one joined, once nothing observes the plays
+            val callback = object : PlaySyncCoordinator.Callback {
+                override val isCancelled: Boolean
+                    get() = result.isInactive
             }
-        }
-
-        override fun saveCallResult(result: PlaysResponse) {
-            val plays = mapper.map(result.plays)
-            playDao.save(plays, syncInitiatedTimestamp)
-            updateTimestamps(plays)
-            Timber.i("Synced page %,d of plays", 1)
-        }
-
-        override fun hasMorePages(result: PlaysResponse, currentPage: Int): Boolean {
-            return when {
-                result.hasMorePages() -> true
-                refreshingNewest -> {
-                    refreshingNewest = false
-                    oldestTimestamp > 0L
+            application.appExecutors.networkIO.execute {
+                val outcome = try {
+                    PlaySyncCoordinator.sync(application, Adapter.createForXml(), user, callback)
+                } catch (e: Exception) {
+                    PlaySyncCoordinator.Outcome(PlaySyncCoordinator.Status.FAILED, exception = e)
+                }
+                application.appExecutors.mainThread.execute {
+                    when {
+                        outcome.status != PlaySyncCoordinator.Status.FAILED -> showSuccess(dbSource)
+                        outcome.exception != null -> showError(dbSource, outcome.exception)
+                        else -> showError(dbSource, getHttpErrorMessage(outcome.httpCode))
+                    }
                 }
-                else -> false
-            }
-        }
-
-        override fun onRefreshSucceeded() {
-            newestTimestamp?.let { playDao.deleteUnupdatedPlaysSince(syncInitiatedTimestamp, it) }
-            if (oldestTimestamp > 0L) {
-                playDao.deleteUnupdatedPlaysBefore(syncInitiatedTimestamp, oldestTimestamp)
-            } else {
-                syncPrefs.setPlaysOldestTimestamp(0L)
-            }
-            CalculatePlayStatsTask(application).executeAsyncTask()
-        }
-
-        override fun onRefreshFailed() {
-            playsRateLimiter.reset(0)
-        }
-
-        override fun onRefreshCancelled() {
-            playsRateLimiter.reset(0)
-        }
-
-        private fun updateTimestamps(plays: List<PlayEntity>) {
-            val newestDate = plays.maxByOrNull { it.dateInMillis }?.dateInMillis ?: 0L
-            if (newestDate > syncPrefs.getPlaysNewestTimestamp() ?: 0L) {
-                syncPrefs.setPlaysNewestTimestamp(newestDate)
-            }
-            val oldestDate = plays.minByOrNull { it.dateInMillis }?.dateInMillis ?: Long.MAX_VALUE
-            if (oldestDate < SyncPrefs.getPrefs(application).getPlaysOldestTimestamp()) {
-                syncPrefs.setPlaysOldestTimestamp(oldestDate)
             }
         }
     }
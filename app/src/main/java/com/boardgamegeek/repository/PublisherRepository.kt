@@ -52,13 +52,21 @@ class PublisherRepository(val application: BggApplication) {
                 return data != null && lastCalculated.isOlderThan(1, TimeUnit.HOURS)
             }
 
-            override fun sortList(data: List<CompanyEntity>?) = data?.sortedBy { it.statsUpdatedTimestamp }
-
-            override fun calculate(data: CompanyEntity) {
-                if (data.statsUpdatedTimestamp > data.updatedTimestamp) return
-                val collection = dao.loadCollection(data.id)
-                val statsEntity = PersonStatsEntity.fromLinkedCollection(collection, application)
-                updateWhitmoreScore(data.id, statsEntity.whitmoreScore, data.whitmoreScore)
+            override fun calculate(data: List<CompanyEntity>): Boolean {
+                val stale = data.filter { it.statsUpdatedTimestamp <= it.updatedTimestamp }
+                if (stale.isEmpty()) return true
+                postProgress(0, 2)
+                val collections = dao.loadCollections()
+                if (isCancelled) return false
+                postProgress(1, 2)
+                val scores = mutableMapOf<Int, Int>()
+                stale.forEach {
+                    val statsEntity = PersonStatsEntity.fromLinkedCollection(collections[it.id].orEmpty(), application)
+                    if (statsEntity.whitmoreScore != it.whitmoreScore) scores[it.id] = statsEntity.whitmoreScore
+                }
+                if (isCancelled) return false
+                dao.updateWhitmoreScores(scores)
+                return true
             }
 
             override fun finishCalculating() {
@@ -94,7 +102,7 @@ class PublisherRepository(val application: BggApplication) {
         }.asLiveData()
         mediatorLiveData.addSource(liveData) {
             it?.data?.maybeRefreshHeroImageUrl("publisher", started) { url ->
-                application.appExecutors.diskIO.execute {
+                application.appExecutors.diskWrite.execute {
                     dao.update(id, ContentValues().apply {
                         put(Publishers.PUBLISHER_HERO_IMAGE_URL, url)
                     })
@@ -114,7 +122,7 @@ class PublisherRepository(val application: BggApplication) {
         mediatorLiveData.addSource(dao.loadCollectionAsLiveData(id)) { collection ->
             val linkedCollection = PersonStatsEntity.fromLinkedCollection(collection, application)
             mediatorLiveData.value = linkedCollection
-            application.appExecutors.diskIO.execute {
+            application.appExecutors.diskWrite.execute {
                 updateWhitmoreScore(id, linkedCollection.whitmoreScore, -1)
             }
         }
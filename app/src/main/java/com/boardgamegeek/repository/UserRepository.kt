@@ -127,7 +127,7 @@ class UserRepository(val application: BggApplication) {
 
     fun updateNickName(username: String, nickName: String) {
         if (username.isBlank()) return
-        application.appExecutors.diskIO.execute {
+        application.appExecutors.diskWrite.execute {
             userDao.updateNickName(username, nickName)
         }
     }
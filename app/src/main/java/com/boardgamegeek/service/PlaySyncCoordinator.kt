@@ -0,0 +1,320 @@
+package com.boardgamegeek.service
+
+import android.os.SystemClock
+import androidx.annotation.WorkerThread
+import com.boardgamegeek.BggApplication
+import com.boardgamegeek.db.PlayDao
+import com.boardgamegeek.entities.PlayEntity
+import com.boardgamegeek.extensions.asDateForApi
+import com.boardgamegeek.io.BggService
+import com.boardgamegeek.io.RequestGovernor
+import com.boardgamegeek.io.model.PlaysResponse
+import com.boardgamegeek.mappers.PlayMapper
+import com.boardgamegeek.pref.SyncPrefs
+import com.boardgamegeek.pref.getPlaysNewestTimestamp
+import com.boardgamegeek.pref.getPlaysOldestTimestamp
+import com.boardgamegeek.pref.setPlaysNewestTimestamp
+import com.boardgamegeek.pref.setPlaysOldestTimestamp
+import com.boardgamegeek.tasks.PlayStatsScheduler
+import com.boardgamegeek.util.RemoteConfig
+import timber.log.Timber
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import kotlin.math.min
+
+private const val CANCEL_CHECK_INTERVAL_MILLIS = 250L
+
+/**
+ * Downloads the user's plays - those newer than the newest synced and older than the oldest synced - for both the sync
+ * adapter and the screens that show plays. Only one download runs at a time in the process; a request made while one
+ * is in flight waits for it and shares its outcome rather than fetching the same pages again. Whoever starts the
+ * download paces it through the [RequestGovernor]; every caller can cancel its own wait. Stats are recalculated once,
+ * after a download completes.
+ */
+object PlaySyncCoordinator {
+    private val REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10)
+
+    private val lock = Any()
+    private var inFlight: Flight? = null
+    private var lastSucceededAt = 0L
+
+    enum class Status {
+        SUCCEEDED,
+        CANCELLED,
+        FAILED
+    }
+
+    class Outcome(
+            val status: Status,
+            val savedCount: Int = 0,
+            val deletedCount: Int = 0,
+            val httpCode: Int = 0,
+            val exception: Exception? = null)
+
+    /**
+     * Lets the caller follow and steer the download. Only the caller that runs the download gets called back; a caller
+     * that joins a download in flight stops waiting for it once [isCancelled].
+     */
+    interface Callback {
+        val isCancelled: Boolean
+            get() = false
+
+        /**
+         * Called before each page is fetched.
+         */
+        fun onFetchingPage(minDate: String?, maxDate: String?, page: Int) {}
+
+        /**
+         * Called before each page is fetched, including the first, to wait [waitMillis] for the request slot reserved
+         * from the [RequestGovernor]. By default, sleeps until then or until [isCancelled].
+         *
+         * @return true if the download should cancel
+         */
+        fun pause(waitMillis: Long): Boolean {
+            val waitUntil = SystemClock.elapsedRealtime() + waitMillis
+            while (!isCancelled) {
+                val remainingMillis = waitUntil - SystemClock.elapsedRealtime()
+                if (remainingMillis <= 0) return false
+                try {
+                    Thread.sleep(min(remainingMillis, CANCEL_CHECK_INTERVAL_MILLIS))
+                } catch (e: InterruptedException) {
+                    Thread.currentThread().interrupt()
+                    return true
+                }
+            }
+            return true
+        }
+    }
+
+    /**
+     * True if a download is in flight, or none has succeeded in this process recently. Lets screens skip refreshing
+     * plays the sync adapter just downloaded.
+     */
+    fun isRefreshDue(): Boolean {
+        synchronized(lock) {
+            return inFlight != null || lastSucceededAt == 0L ||
+                    SystemClock.elapsedRealtime() - lastSucceededAt > REFRESH_INTERVAL_MILLIS
+        }
+    }
+
+    /**
+     * Downloads the plays of [username], or waits for the download of them already in flight. Blocks until it's complete
+     * or [callback] is cancelled. If the download joined is cancelled by the caller that started it, or is for another
+     * user, this caller starts another one once it's done.
+     */
+    @WorkerThread
+    fun sync(application: BggApplication, service: BggService, username: String, callback: Callback = object : Callback {}): Outcome {
+        while (true) {
+            val flight: Flight
+            val isLeader: Boolean
+            synchronized(lock) {
+                val existing = inFlight
+                isLeader = existing == null
+                flight = existing ?: Flight(username, FutureTask { Download(application, service, username, callback).execute() })
+                inFlight = flight
+            }
+            val task = flight.task
+            if (isLeader) {
+                task.run() // FutureTask catches anything thrown, for get() to rethrow to every caller
+                synchronized(lock) {
+                    inFlight = null
+                    val succeeded = try {
+                        task.get().status == Status.SUCCEEDED
+                    } catch (e: ExecutionException) {
+                        false
+                    }
+                    if (succeeded) lastSucceededAt = SystemClock.elapsedRealtime()
+                }
+                return task.getOutcome()
+            }
+
+            if (flight.username != username) {
+                // its outcome says nothing about this user's plays; start this user's download once it's done
+                Timber.i("Waiting for the play download of another user")
+                try {
+                    task.await(callback) ?: return Outcome(Status.CANCELLED)
+                } catch (e: Exception) {
+                    Timber.w(e, "The play download of another user failed")
+                }
+                continue
+            }
+
+            Timber.i("Joining the play download in flight")
+            val outcome = task.await(callback) ?: return Outcome(Status.CANCELLED)
+            if (outcome.status != Status.CANCELLED) return outcome
+            Timber.i("The play download joined was cancelled; starting another")
+        }
+    }
+
+    private class Flight(val username: String, val task: FutureTask<Outcome>)
+
+    /**
+     * Waits for a download started by another caller, checking whether [callback] is cancelled as it waits.
+     *
+     * @return the outcome, or null if the callback was cancelled first
+     */
+    private fun FutureTask<Outcome>.await(callback: Callback): Outcome? {
+        while (!callback.isCancelled) {
+            try {
+                return getOutcome(CANCEL_CHECK_INTERVAL_MILLIS)
+            } catch (e: TimeoutException) {
+                // check for cancellation again
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                return null
+            }
+        }
+        return null
+    }
+
+    private fun FutureTask<Outcome>.getOutcome(timeoutMillis: Long? = null): Outcome {
+        return try {
+            if (timeoutMillis == null) get() else get(timeoutMillis, TimeUnit.MILLISECONDS)
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    private class Download(
+            val application: BggApplication,
+            val service: BggService,
+            val username: String,
+            val callback: Callback) {
+        private val playDao = PlayDao(application)
+        private val syncPrefs = SyncPrefs.getPrefs(application)
+        private val fetchPauseMillis = RemoteConfig.getLong(RemoteConfig.KEY_SYNC_PLAYS_FETCH_PAUSE_MILLIS)
+        private val startTime = System.currentTimeMillis()
+        private var savedCount = 0
+        private var deletedCount = 0
+        private var httpCode = 0
+        private var exception: Exception? = null
+
+        fun execute(): Outcome {
+            val newestSyncDate = syncPrefs.getPlaysNewestTimestamp()
+            executeCall(newestSyncDate?.asDateForApi(), null)?.let { return outcome(it) }
+            deletedCount += playDao.deleteUnupdatedPlaysSince(startTime, newestSyncDate ?: 0L)
+            Timber.i("...deleted $deletedCount unupdated plays")
+
+            val oldestDate = syncPrefs.getPlaysOldestTimestamp()
+            if (oldestDate > 0) {
+                executeCall(null, oldestDate.asDateForApi())?.let { return outcome(it) }
+                val count = playDao.deleteUnupdatedPlaysBefore(startTime, newestSyncDate ?: 0L)
+                deletedCount += count
+                Timber.i("...deleted $count unupdated plays")
+                syncPrefs.setPlaysOldestTimestamp(0L)
+            }
+            PlayStatsScheduler.schedule(application)
+            return outcome(Status.SUCCEEDED)
+        }
+
+        private fun outcome(status: Status) = Outcome(status, savedCount, deletedCount, httpCode, exception)
+
+        /**
+         * Fetch the plays for the user in the specified date range. Plays are fetched 1 page of 50 at a time, most
+         * recent first. If successfully fetched, the page is handed to a worker that stores the plays in the database
+         * and updates the sync timestamps, while this thread pauses then fetches another page. At most one page waits
+         * to be persisted, so a slow database holds back the fetching rather than piling up pages in memory.
+         *
+         * @return the status if the download should stop, otherwise null
+         */
+        private fun executeCall(minDate: String?, maxDate: String?): Status? {
+            val persistExecutor = Executors.newSingleThreadExecutor()
+            var pendingPersist: Future<*>? = null
+            try {
+                var response: PlaysResponse?
+                var page = 1
+                do {
+                    if (callback.isCancelled) {
+                        Timber.i("...cancelled early")
+                        return Status.CANCELLED
+                    }
+
+                    val waitMillis = RequestGovernor.reserve(fetchPauseMillis)
+                    if (waitMillis > 0 && callback.pause(waitMillis)) return Status.CANCELLED
+
+                    callback.onFetchingPage(minDate, maxDate, page)
+                    try {
+                        val r = service.plays(username, minDate, maxDate, page).execute()
+                        if (!r.isSuccessful) {
+                            httpCode = r.code()
+                            return Status.FAILED
+                        }
+                        response = r.body()
+                    } catch (e: Exception) {
+                        exception = e
+                        return Status.FAILED
+                    }
+
+                    val pagePlays = response?.plays
+                    pendingPersist.also { pendingPersist = null }.await()
+                    pendingPersist = persistExecutor.submit {
+                        val plays = PlayMapper().map(pagePlays, startTime)
+                        persist(plays)
+                        updateTimestamps(plays)
+                    }
+                    page++
+                } while (response != null && response.hasMorePages())
+                pendingPersist.also { pendingPersist = null }.await()
+                return null
+            } finally {
+                // a page still in flight means the download is already returning a status or throwing; let it finish
+                // without replacing that outcome
+                try {
+                    pendingPersist.awaitQuietly()
+                } finally {
+                    persistExecutor.shutdown()
+                }
+            }
+        }
+
+        /**
+         * Wait for the page being persisted, rethrowing anything it threw.
+         */
+        private fun Future<*>?.await() {
+            try {
+                this?.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+
+        /**
+         * Wait for the page being persisted, logging rather than throwing anything it threw.
+         */
+        private fun Future<*>?.awaitQuietly() {
+            try {
+                this?.get()
+            } catch (e: ExecutionException) {
+                Timber.w(e.cause ?: e, "Failed to persist a page of plays")
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+            }
+        }
+
+        private fun persist(plays: List<PlayEntity>) {
+            if (plays.isNotEmpty()) {
+                val saveStartTime = System.currentTimeMillis()
+                playDao.save(plays, startTime)
+                savedCount += plays.size
+                Timber.i("...saved ${plays.size} plays in ${System.currentTimeMillis() - saveStartTime}ms")
+            } else {
+                Timber.i("...no plays to update")
+            }
+        }
+
+        private fun updateTimestamps(plays: List<PlayEntity>) {
+            val newestDate = plays.maxByOrNull { it.dateInMillis }?.dateInMillis ?: 0L
+            if (newestDate > syncPrefs.getPlaysNewestTimestamp() ?: 0L) {
+                syncPrefs.setPlaysNewestTimestamp(newestDate)
+            }
+            val oldestDate = plays.minByOrNull { it.dateInMillis }?.dateInMillis ?: Long.MAX_VALUE
+            if (oldestDate < syncPrefs.getPlaysOldestTimestamp()) {
+                syncPrefs.setPlaysOldestTimestamp(oldestDate)
+            }
+        }
+    }
+}
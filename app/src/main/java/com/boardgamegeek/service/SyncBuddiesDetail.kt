@@ -46,6 +46,8 @@ abstract class SyncBuddiesDetail(application: BggApplication, service: BggServic
                         break
                     }
 
+                    if (wasPacingInterrupted(fetchPauseMillis, showNotification = false)) break
+
                     notificationMessage = context.getString(R.string.sync_notification_buddy, name)
                     updateProgressNotification(notificationMessage)
 
@@ -54,8 +56,6 @@ abstract class SyncBuddiesDetail(application: BggApplication, service: BggServic
                     userDao.saveUser(user)
                     syncResult.stats.numUpdates++
                     count++
-
-                    if (wasSleepInterrupted(fetchPauseMillis, showNotification = false)) break
                 }
             } else {
                 Timber.i("...no buddies to update")
@@ -12,10 +12,13 @@ import com.boardgamegeek.extensions.getSyncStatusesOrDefault
 import com.boardgamegeek.extensions.isCollectionSetToSync
 import com.boardgamegeek.extensions.isOlderThan
 import com.boardgamegeek.io.BggService
+import com.boardgamegeek.io.CollectionResponseParser
+import com.boardgamegeek.io.model.CollectionItem
 import com.boardgamegeek.mappers.CollectionItemMapper
 import com.boardgamegeek.pref.*
 import com.boardgamegeek.provider.BggContract.Collection
 import com.boardgamegeek.util.RemoteConfig
+import org.xmlpull.v1.XmlPullParserException
 import timber.log.Timber
 import java.io.IOException
 import java.util.concurrent.TimeUnit
@@ -30,6 +33,8 @@ class SyncCollectionComplete(application: BggApplication, service: BggService, s
 
     private val fetchIntervalInDays = RemoteConfig.getInt(RemoteConfig.KEY_SYNC_COLLECTION_FETCH_INTERVAL_DAYS)
 
+    private val fetchPauseMillis = RemoteConfig.getLong(RemoteConfig.KEY_SYNC_COLLECTION_FETCH_PAUSE_MILLIS)
+
     override val syncType = SyncService.FLAG_SYNC_COLLECTION_DOWNLOAD
 
     private val syncableStatuses: List<String>
@@ -69,19 +74,13 @@ class SyncCollectionComplete(application: BggApplication, service: BggService, s
             val statuses = syncableStatuses
             for (i in statuses.indices) {
                 val status = statuses[i]
-                if (i > 0) {
-                    if (isCancelled) {
-                        Timber.i("Complete collection sync task cancelled before syncing $status")
-                        return
-                    }
-                    if (wasSleepInterrupted(5, TimeUnit.SECONDS)) return
+                if (i > 0 && isCancelled) {
+                    Timber.i("Complete collection sync task cancelled before syncing $status")
+                    return
                 }
 
                 val excludedStatuses = (0 until i).map { statuses[it] }
                 syncByStatus("", status, *excludedStatuses.toTypedArray())
-
-                if (wasSleepInterrupted(5, TimeUnit.SECONDS)) return
-
                 syncByStatus(BggService.THING_SUBTYPE_BOARDGAME_ACCESSORY, status, *excludedStatuses.toTypedArray())
             }
 
@@ -111,6 +110,11 @@ class SyncCollectionComplete(application: BggApplication, service: BggService, s
             return
         }
 
+        if (wasPacingInterrupted(fetchPauseMillis)) {
+            cancel()
+            return
+        }
+
         Timber.i("Syncing $statusDescription collection $subtypeDescription while excluding statuses [${excludedStatuses.formatList()}]")
 
         updateProgressNotification(context.getString(R.string.sync_notification_collection_downloading, statusDescription, subtypeDescription))
@@ -123,26 +127,40 @@ class SyncCollectionComplete(application: BggApplication, service: BggService, s
         for (excludedStatus in excludedStatuses) options[excludedStatus] = "0"
 
         val dao = CollectionDao(application)
-        val call = service.collection(account.name, options)
+        val call = service.collectionStream(account.name, options)
         try {
             val timestamp = System.currentTimeMillis()
             val response = call.execute()
             if (response.code() == 200) {
-                val items = response.body()?.items
-                if (items != null && items.size > 0) {
-                    updateProgressNotification(context.getString(R.string.sync_notification_collection_saving, items.size, statusDescription, subtypeDescription))
-                    val mapper = CollectionItemMapper()
-                    for (item in items) {
-                        val pair = mapper.map(item)
-                        dao.saveItem(pair.first, pair.second, timestamp)
+                val mapper = CollectionItemMapper()
+                val chunk = ArrayList<CollectionItem>(SAVE_CHUNK_SIZE)
+                var count = 0
+                var saveMillis = 0L
+                val saveChunk = {
+                    updateProgressNotification(context.getString(R.string.sync_notification_collection_saving, count + chunk.size, statusDescription, subtypeDescription))
+                    val startTime = System.currentTimeMillis()
+                    dao.saveItems(chunk.map { mapper.map(it) }, timestamp)
+                    saveMillis += System.currentTimeMillis() - startTime
+                    count += chunk.size
+                    chunk.clear()
+                }
+                response.body()?.use { body ->
+                    CollectionResponseParser.parse(body.charStream()) { item ->
+                        chunk += item
+                        if (chunk.size >= SAVE_CHUNK_SIZE) saveChunk()
                     }
+                }
+                if (chunk.isNotEmpty()) saveChunk()
+                if (count > 0) {
+                    val elapsedMillis = saveMillis.coerceAtLeast(1)
                     syncPrefs.setCompleteCollectionSyncTimestamp(subtype, status, timestamp)
-                    syncResult.stats.numUpdates += items.size.toLong()
-                    Timber.i("Saved ${items.size} $statusDescription collection $subtypeDescription")
+                    syncResult.stats.numUpdates += count.toLong()
+                    Timber.i("Saved $count $statusDescription collection $subtypeDescription in $elapsedMillis ms (${count * 1000L / elapsedMillis} items/sec)")
                 } else {
                     Timber.i("No $statusDescription collection $subtypeDescription found")
                 }
             } else {
+                response.body()?.close()
                 showError(context.getString(R.string.sync_notification_collection_detail, statusDescription, subtypeDescription), response.code())
                 syncResult.stats.numIoExceptions++
                 cancel()
@@ -151,6 +169,10 @@ class SyncCollectionComplete(application: BggApplication, service: BggService, s
             showError(context.getString(R.string.sync_notification_collection_detail, statusDescription, subtypeDescription), e)
             syncResult.stats.numIoExceptions++
             cancel()
+        } catch (e: XmlPullParserException) {
+            showError(context.getString(R.string.sync_notification_collection_detail, statusDescription, subtypeDescription), e)
+            syncResult.stats.numParseExceptions++
+            cancel()
         }
     }
 
@@ -189,4 +211,12 @@ class SyncCollectionComplete(application: BggApplication, service: BggService, s
         syncPrefs.setPartialCollectionSyncLastCompletedAt(syncPrefs.getCurrentCollectionSyncTimestamp())
         syncPrefs.setCurrentCollectionSyncTimestamp(0L)
     }
+
+    companion object {
+        /**
+         * The number of parsed items saved together; large enough to amortize the batch, small enough that a complete
+         * collection is never in memory at once.
+         */
+        private const val SAVE_CHUNK_SIZE = 100
+    }
 }
@@ -52,8 +52,6 @@ class SyncCollectionModifiedSince(application: BggApplication, service: BggServi
                 return
             }
 
-            if (wasSleepInterrupted(fetchPauseMillis)) return
-
             syncBySubtype(BggService.THING_SUBTYPE_BOARDGAME_ACCESSORY)
             if (isCancelled) {
                 Timber.i("...cancelled")
@@ -74,6 +72,11 @@ class SyncCollectionModifiedSince(application: BggApplication, service: BggServi
             return
         }
 
+        if (wasPacingInterrupted(fetchPauseMillis)) {
+            cancel()
+            return
+        }
+
         val modifiedSince = BggService.COLLECTION_QUERY_DATE_TIME_FORMAT.format(Date(lastStatusSync))
         val subtypeDescription = context.getString(when (subtype) {
             BggService.THING_SUBTYPE_BOARDGAME -> R.string.games
@@ -45,7 +45,7 @@ class SyncCollectionUnupdated(application: BggApplication, service: BggService,
             do {
                 if (isCancelled) break
 
-                if (numberOfFetches > 0) if (wasSleepInterrupted(fetchPauseMillis)) return
+                if (wasPacingInterrupted(fetchPauseMillis)) return
 
                 numberOfFetches++
                 val gameList = queryGames()
@@ -7,11 +7,15 @@ import com.boardgamegeek.db.GameDao
 import com.boardgamegeek.extensions.formatList
 import com.boardgamegeek.extensions.use
 import com.boardgamegeek.io.BggService
+import com.boardgamegeek.io.model.Game
 import com.boardgamegeek.mappers.GameMapper
 import com.boardgamegeek.provider.BggContract.Games
 import com.boardgamegeek.util.RemoteConfig
 import timber.log.Timber
 import java.io.IOException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
 abstract class SyncGames(application: BggApplication, service: BggService, syncResult: SyncResult) : SyncTask(application, service, syncResult) {
     private val dao = GameDao(application)
@@ -27,17 +31,24 @@ abstract class SyncGames(application: BggApplication, service: BggService, syncR
 
     protected open val selection: String? = null
 
+    /**
+     * Fetches batches of games, paced by the [com.boardgamegeek.io.RequestGovernor]. Each fetched batch is mapped and
+     * saved by a worker while the next batch is fetched; at most one batch waits to be saved.
+     */
     override fun execute() {
         Timber.i(getIntroLogMessage(gamesPerFetch))
+        val saveExecutor = Executors.newSingleThreadExecutor()
+        var pendingSave: Future<Int>? = null
+        var pendingGameIds = emptySet<Int>()
         try {
             var numberOfFetches = 0
             do {
                 if (isCancelled) break
 
-                if (numberOfFetches > 0) if (wasSleepInterrupted(fetchPauseMillis)) return
+                if (wasPacingInterrupted(fetchPauseMillis)) return
 
                 numberOfFetches++
-                val gameList = getGames(gamesPerFetch)
+                val gameList = getGames(gamesPerFetch, pendingGameIds)
                 if (gameList.isNotEmpty()) {
                     val gamesDescription = gameList.values.toList().formatList()
                     Timber.i("...found ${gameList.size} games to update [$gamesDescription]")
@@ -55,16 +66,11 @@ abstract class SyncGames(application: BggApplication, service: BggService, syncR
                         if (response.isSuccessful) {
                             val games = response.body()?.games.orEmpty()
                             if (games.isNotEmpty()) {
-                                for (game in games) {
-                                    val entity = gameMapper.map(game)
-                                    if (entity.name.isBlank()) {
-                                        dao.delete(entity.id)
-                                    } else {
-                                        dao.save(entity, timestamp)
-                                    }
-                                }
-                                syncResult.stats.numUpdates += games.size.toLong()
-                                Timber.i("...saved %,d games", games.size)
+                                val wasSaved = awaitSave(pendingSave, detail)
+                                pendingSave = null
+                                if (!wasSaved) break
+                                pendingGameIds = gameList.keys
+                                pendingSave = saveExecutor.submit<Int> { save(games, timestamp) }
                             } else {
                                 Timber.i("...no games returned")
                                 break
@@ -105,10 +111,38 @@ abstract class SyncGames(application: BggApplication, service: BggService, syncR
                 }
             } while (numberOfFetches < maxFetchCount)
         } finally {
+            awaitSave(pendingSave, "")
+            saveExecutor.shutdown()
             Timber.i("...complete!")
         }
     }
 
+    private fun save(games: List<Game>, timestamp: Long): Int {
+        val (entities, unnamedEntities) = games.map { gameMapper.map(it) }.partition { it.name.isNotBlank() }
+        unnamedEntities.forEach { dao.delete(it.id) }
+        return dao.save(entities, timestamp)
+    }
+
+    /**
+     * Wait for the batch being saved to finish. Returns false if it failed and the sync should stop.
+     */
+    private fun awaitSave(save: Future<Int>?, detail: String): Boolean {
+        if (save == null) return true
+        return try {
+            val count = save.get()
+            syncResult.stats.numUpdates += count.toLong()
+            Timber.i("...saved %,d games", count)
+            true
+        } catch (e: ExecutionException) {
+            showError(detail, e.cause ?: e)
+            syncResult.stats.numParseExceptions++
+            false
+        } catch (e: InterruptedException) {
+            Timber.w(e, "Interrupted while saving games")
+            false
+        }
+    }
+
     private fun syncGame(id: Int, gameName: String): Boolean {
         var detail = ""
         val call = service.thing(id, 1)
@@ -118,16 +152,17 @@ abstract class SyncGames(application: BggApplication, service: BggService, syncR
             if (response.isSuccessful) {
                 val games =  response.body()?.games.orEmpty()
                 detail = context.resources.getQuantityString(R.plurals.sync_notification_games, 1, 1, gameName)
+                var savedCount = 0
                 for (game in games) {
                     val entity = gameMapper.map(game)
                     if (entity.name.isBlank()) {
                         dao.delete(entity.id)
                     } else {
-                        dao.save(entity, timestamp)
+                        savedCount += dao.save(entity, timestamp)
                     }
                 }
-                syncResult.stats.numUpdates += games.size.toLong()
-                Timber.i("...saved %,d games", games.size)
+                syncResult.stats.numUpdates += savedCount.toLong()
+                Timber.i("...saved %,d games", savedCount)
             } else {
                 showError(detail, response.code())
                 syncResult.stats.numIoExceptions++
@@ -161,11 +196,15 @@ abstract class SyncGames(application: BggApplication, service: BggService, syncR
 
     protected abstract fun getIntroLogMessage(gamesPerFetch: Int): String
 
-    private fun getGames(gamesPerFetch: Int): Map<Int, String> {
+    /**
+     * @param excludedGameIds games that have been fetched, but may not be saved yet
+     */
+    private fun getGames(gamesPerFetch: Int, excludedGameIds: Set<Int>): Map<Int, String> {
         val games = mutableMapOf<Int, String>()
+        val exclusion = if (excludedGameIds.isEmpty()) null else "games.${Games.GAME_ID} NOT IN (${excludedGameIds.joinToString(",")})"
         val cursor = context.contentResolver.query(Games.CONTENT_URI,
                 arrayOf(Games.GAME_ID, Games.GAME_NAME),
-                selection,
+                listOfNotNull(selection?.let { "($it)" }, exclusion).joinToString(" AND ").ifEmpty { null },
                 null,
                 "games.${Games.UPDATED_LIST} LIMIT $gamesPerFetch")
         cursor?.use {
@@ -15,7 +15,7 @@ import com.boardgamegeek.extensions.*
 import com.boardgamegeek.io.BggService
 import com.boardgamegeek.provider.BggContract.*
 import com.boardgamegeek.provider.BggContract.Collection
-import com.boardgamegeek.tasks.CalculatePlayStatsTask
+import com.boardgamegeek.tasks.PlayStatsScheduler
 import com.boardgamegeek.ui.GamePlaysActivity
 import com.boardgamegeek.ui.LogPlayActivity
 import com.boardgamegeek.ui.PlayActivity
@@ -70,7 +70,7 @@ class SyncPlaysUpload(application: BggApplication, service: BggService, syncResu
     override fun execute() {
         deletePendingPlays()
         updatePendingPlays()
-        CalculatePlayStatsTask(application).executeAsyncTask()
+        PlayStatsScheduler.schedule(application)
     }
 
     private fun updatePendingPlays() {
@@ -11,6 +11,7 @@ import com.boardgamegeek.BggApplication
 import com.boardgamegeek.R
 import com.boardgamegeek.extensions.*
 import com.boardgamegeek.io.BggService
+import com.boardgamegeek.io.RequestGovernor
 import com.boardgamegeek.pref.SyncPrefs
 import com.boardgamegeek.util.NotificationUtils
 import com.google.firebase.crashlytics.FirebaseCrashlytics
@@ -152,6 +153,15 @@ abstract class SyncTask(protected val application: BggApplication, protected val
         return false
     }
 
+    /**
+     * Wait until the [RequestGovernor] allows the next request, at least [intervalMillis] after the previous request by
+     * any sync task. Returns true if the thread was interrupted. This typically means the task should stop processing.
+     */
+    protected fun wasPacingInterrupted(intervalMillis: Long, showNotification: Boolean = true): Boolean {
+        val waitMillis = RequestGovernor.reserve(intervalMillis)
+        return waitMillis > 0 && wasSleepInterrupted(waitMillis, showNotification = showNotification)
+    }
+
     companion object {
         const val NO_NOTIFICATION = 0
     }
@@ -25,10 +25,11 @@ abstract class CollectionSorter(protected val context: Context) {
     protected open val subDescriptionResId = 0
 
     /**
-     * The unique type.
+     * The unique type. Resolved from the string resource once.
      */
-    val type: Int
-        get() = context.getString(typeResId).toIntOrNull() ?: CollectionSorterFactory.TYPE_DEFAULT
+    val type: Int by lazy {
+        context.getString(typeResId).toIntOrNull() ?: CollectionSorterFactory.TYPE_DEFAULT
+    }
 
     @get:StringRes
     protected abstract val typeResId: Int
@@ -1,46 +1,44 @@
 package com.boardgamegeek.sorter
 
 import android.content.Context
+import android.util.SparseArray
 import timber.log.Timber
 
 class CollectionSorterFactory(context: Context) {
-    private val sorters = mutableListOf<CollectionSorter>()
+    private val sorters = SparseArray<CollectionSorter>()
 
     init {
-        with(sorters) {
-            clear()
-            add(CollectionNameSorter(context))
-            add(GeekRatingSorter(context))
-            add(YearPublishedAscendingSorter(context))
-            add(YearPublishedDescendingSorter(context))
-            add(PlayTimeAscendingSorter(context))
-            add(PlayTimeDescendingSorter(context))
-            add(SuggestedAgeAscendingSorter(context))
-            add(SuggestedAgeDescendingSorter(context))
-            add(AverageWeightAscendingSorter(context))
-            add(AverageWeightDescendingSorter(context))
-            add(PlayCountAscendingSorter(context))
-            add(PlayCountDescendingSorter(context))
-            add(LastPlayDateDescendingSorter(context))
-            add(LastPlayDateAscendingSorter(context))
-            add(WishlistPrioritySorter(context))
-            add(LastViewedSorter(context))
-            add(MyRatingSorter(context))
-            add(RankSorter(context))
-            add(AverageRatingSorter(context))
-            add(AcquisitionDateSorter(context))
-            add(AcquiredFromSorter(context))
-            add(PricePaidSorter(context))
-            add(CurrentValueSorter(context))
-            add(InventoryLocationSorter(context))
-            add(LastModifiedDateSorter(context))
-        }
+        listOf(
+                CollectionNameSorter(context),
+                GeekRatingSorter(context),
+                YearPublishedAscendingSorter(context),
+                YearPublishedDescendingSorter(context),
+                PlayTimeAscendingSorter(context),
+                PlayTimeDescendingSorter(context),
+                SuggestedAgeAscendingSorter(context),
+                SuggestedAgeDescendingSorter(context),
+                AverageWeightAscendingSorter(context),
+                AverageWeightDescendingSorter(context),
+                PlayCountAscendingSorter(context),
+                PlayCountDescendingSorter(context),
+                LastPlayDateDescendingSorter(context),
+                LastPlayDateAscendingSorter(context),
+                WishlistPrioritySorter(context),
+                LastViewedSorter(context),
+                MyRatingSorter(context),
+                RankSorter(context),
+                AverageRatingSorter(context),
+                AcquisitionDateSorter(context),
+                AcquiredFromSorter(context),
+                PricePaidSorter(context),
+                CurrentValueSorter(context),
+                InventoryLocationSorter(context),
+                LastModifiedDateSorter(context),
+        ).forEach { sorters.put(it.type, it) }
     }
 
     fun create(type: Int): CollectionSorter? {
-        return sorters
-                .filter { it.type == type }
-                .firstOrNull { return it }
+        return sorters.get(type)
                 ?: if (type == TYPE_DEFAULT) {
                     Timber.w("Default sort type not found.")
                     null
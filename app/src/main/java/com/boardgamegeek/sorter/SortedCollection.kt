@@ -0,0 +1,45 @@
+package com.boardgamegeek.sorter
+
+import com.boardgamegeek.entities.CollectionItemEntity
+
+/**
+ * Filtered and sorted collection items, along with the sections they fall into. Headers are formatted once, when this
+ * is built off the main thread, so the list can look up the section of any position while scrolling without
+ * formatting anything.
+ */
+class SortedCollection(val items: List<CollectionItemEntity>, val sorter: CollectionSorter?) {
+    private val headers: Array<String>
+    private val sectionStarts: IntArray
+    private val sectionOfPosition = IntArray(items.size)
+
+    init {
+        val headerList = mutableListOf<String>()
+        val startList = mutableListOf<Int>()
+        items.forEachIndexed { position, item ->
+            val header = sorter?.getHeaderText(item) ?: NO_HEADER
+            if (headerList.isEmpty() || headerList.last() != header) {
+                headerList += header
+                startList += position
+            }
+            sectionOfPosition[position] = headerList.size - 1
+        }
+        headers = headerList.toTypedArray()
+        sectionStarts = startList.toIntArray()
+    }
+
+    fun isSection(position: Int): Boolean {
+        if (position !in items.indices) return false
+        return sectionStarts[sectionOfPosition[position]] == position
+    }
+
+    fun getSectionHeader(position: Int): String {
+        if (position !in items.indices) return NO_HEADER
+        return headers[sectionOfPosition[position]]
+    }
+
+    companion object {
+        private const val NO_HEADER = "-"
+
+        val EMPTY = SortedCollection(emptyList(), null)
+    }
+}
@@ -2,6 +2,7 @@ package com.boardgamegeek.tasks
 
 import android.content.SharedPreferences
 import android.os.AsyncTask
+import android.os.SystemClock
 import com.boardgamegeek.BggApplication
 import com.boardgamegeek.entities.PlayStatsEntity
 import com.boardgamegeek.entities.PlayerStatsEntity
@@ -14,26 +15,65 @@ import com.boardgamegeek.extensions.isStatusSetToSync
 import com.boardgamegeek.extensions.preferences
 import com.boardgamegeek.pref.SyncPrefs
 import com.boardgamegeek.pref.isPlaysSyncUpToDate
+import com.boardgamegeek.provider.BggProvider
 import com.boardgamegeek.repository.PlayRepository
+import timber.log.Timber
 
+/**
+ * Recalculates the game and player H-indexes from the plays. Rather than executing it directly, request it through
+ * [PlayStatsScheduler] so that requests close together share a calculation.
+ */
 class CalculatePlayStatsTask(private val application: BggApplication) : AsyncTask<Void, Void, Void?>() {
     private val playRepository: PlayRepository = PlayRepository(application)
     private val prefs: SharedPreferences by lazy { application.preferences() }
 
     override fun doInBackground(vararg params: Void): Void? {
         if (SyncPrefs.getPrefs(application).isPlaysSyncUpToDate()) {
-            val includeIncompletePlays = prefs[LOG_PLAY_STATS_INCOMPLETE, false] ?: false
-            val includeExpansions = prefs[LOG_PLAY_STATS_EXPANSIONS, false] ?: false
-            val includeAccessories = prefs[LOG_PLAY_STATS_ACCESSORIES, false] ?: false
+            synchronized(lock) {
+                val inputs = Inputs(
+                        BggProvider.playsGeneration,
+                        prefs[LOG_PLAY_STATS_INCOMPLETE, false] ?: false,
+                        prefs[LOG_PLAY_STATS_EXPANSIONS, false] ?: false,
+                        prefs[LOG_PLAY_STATS_ACCESSORIES, false] ?: false,
+                        prefs.isStatusSetToSync(COLLECTION_STATUS_OWN),
+                )
+                if (inputs == lastInputs) {
+                    Timber.i("Plays haven't changed since play stats were calculated")
+                    return null
+                }
 
-            val playStats = playRepository.loadForStats(includeIncompletePlays, includeExpansions, includeAccessories)
-            val playStatsEntity = PlayStatsEntity(playStats, prefs.isStatusSetToSync(COLLECTION_STATUS_OWN))
-            playRepository.updateGameHIndex(playStatsEntity.hIndex)
+                val startTime = SystemClock.elapsedRealtime()
+                val playStats = playRepository.loadForStats(inputs.includeIncompletePlays, inputs.includeExpansions, inputs.includeAccessories)
+                if (isCancelled) return null
+                val playStatsEntity = PlayStatsEntity(playStats, inputs.isOwnedSynced)
+                playRepository.updateGameHIndex(playStatsEntity.hIndex)
 
-            val playerStats = playRepository.loadPlayersForStats(includeIncompletePlays)
-            val playerStatsEntity = PlayerStatsEntity(playerStats)
-            playRepository.updatePlayerHIndex(playerStatsEntity.hIndex)
+                if (isCancelled) return null
+                val playerStats = playRepository.loadPlayersForStats(inputs.includeIncompletePlays)
+                if (isCancelled) return null
+                val playerStatsEntity = PlayerStatsEntity(playerStats)
+                playRepository.updatePlayerHIndex(playerStatsEntity.hIndex)
+
+                lastInputs = inputs
+                PlayStatsScheduler.onRunFinished(this, SystemClock.elapsedRealtime() - startTime)
+            }
         }
         return null
     }
+
+    /**
+     * Everything the stats are calculated from. If none of it changed, neither did the stats.
+     */
+    private data class Inputs(
+            val playsGeneration: Long,
+            val includeIncompletePlays: Boolean,
+            val includeExpansions: Boolean,
+            val includeAccessories: Boolean,
+            val isOwnedSynced: Boolean,
+    )
+
+    companion object {
+        private val lock = Any()
+        private var lastInputs: Inputs? = null
+    }
 }
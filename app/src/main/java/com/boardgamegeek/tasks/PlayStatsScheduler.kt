@@ -0,0 +1,68 @@
+package com.boardgamegeek.tasks
+
+import android.os.Handler
+import android.os.Looper
+import com.boardgamegeek.BggApplication
+import com.boardgamegeek.extensions.executeAsyncTask
+import timber.log.Timber
+
+/**
+ * Coalesces requests to recalculate play stats. A calculation starts once no request has arrived for
+ * [DEBOUNCE_MILLIS], so a sync and the screens open during it trigger one calculation between them. A calculation
+ * still running when the next one starts is cancelled, since its result is about to be replaced.
+ *
+ * Safe to call from any thread; the scheduling itself happens on the main thread.
+ */
+object PlayStatsScheduler {
+    private const val DEBOUNCE_MILLIS = 2_000L
+
+    private val handler = Handler(Looper.getMainLooper())
+    private var application: BggApplication? = null
+    private var runningTask: CalculatePlayStatsTask? = null
+
+    /**
+     * The number of times stats were requested in this process.
+     */
+    @Volatile
+    var requestCount = 0
+        private set
+
+    /**
+     * The number of calculations that ran to completion in this process.
+     */
+    @Volatile
+    var runCount = 0
+        private set
+
+    /**
+     * How long the last completed calculation took, in milliseconds.
+     */
+    @Volatile
+    var lastRunDurationMillis = 0L
+        private set
+
+    private val start = Runnable {
+        application?.let {
+            runningTask?.cancel(false)
+            runningTask = CalculatePlayStatsTask(it).apply { executeAsyncTask() }
+        }
+    }
+
+    fun schedule(application: BggApplication) {
+        handler.post {
+            requestCount++
+            this.application = application
+            handler.removeCallbacks(start)
+            handler.postDelayed(start, DEBOUNCE_MILLIS)
+        }
+    }
+
+    internal fun onRunFinished(task: CalculatePlayStatsTask, duration: Long) {
+        handler.post {
+            if (runningTask == task) runningTask = null
+            runCount++
+            lastRunDurationMillis = duration
+            Timber.i("Calculated play stats in %,d ms (%,d runs for %,d requests)", duration, runCount, requestCount)
+        }
+    }
+}
@@ -7,10 +7,9 @@ import com.boardgamegeek.R
 import com.boardgamegeek.auth.AccountUtils
 import com.boardgamegeek.db.PlayDao
 import com.boardgamegeek.extensions.asDateForApi
-import com.boardgamegeek.extensions.executeAsyncTask
 import com.boardgamegeek.io.model.PlaysResponse
 import com.boardgamegeek.mappers.PlayMapper
-import com.boardgamegeek.tasks.CalculatePlayStatsTask
+import com.boardgamegeek.tasks.PlayStatsScheduler
 import retrofit2.Call
 import timber.log.Timber
 
@@ -49,6 +48,6 @@ class SyncPlaysByDateTask(
     }
 
     override fun finishSync() {
-        CalculatePlayStatsTask(application).executeAsyncTask()
+        PlayStatsScheduler.schedule(application)
     }
 }
\ No newline at end of file
@@ -8,14 +8,13 @@ import com.boardgamegeek.BggApplication
 import com.boardgamegeek.R
 import com.boardgamegeek.auth.AccountUtils
 import com.boardgamegeek.db.PlayDao
-import com.boardgamegeek.extensions.executeAsyncTask
 import com.boardgamegeek.extensions.whereZeroOrNull
 import com.boardgamegeek.io.model.PlaysResponse
 import com.boardgamegeek.mappers.PlayMapper
 import com.boardgamegeek.provider.BggContract
 import com.boardgamegeek.provider.BggContract.Games
 import com.boardgamegeek.provider.BggContract.Plays
-import com.boardgamegeek.tasks.CalculatePlayStatsTask
+import com.boardgamegeek.tasks.PlayStatsScheduler
 import retrofit2.Call
 import timber.log.Timber
 
@@ -55,7 +54,7 @@ class SyncPlaysByGameTask(
     override fun finishSync() {
         deleteUnupdatedPlays(context, startTime)
         updateGameTimestamp(context)
-        CalculatePlayStatsTask(application).executeAsyncTask()
+        PlayStatsScheduler.schedule(application)
     }
 
     private fun deleteUnupdatedPlays(context: Context, startTime: Long) {
@@ -11,7 +11,6 @@ import android.os.Build
 import android.os.Build.VERSION_CODES
 import android.os.Bundle
 import android.util.Pair
-import android.util.SparseBooleanArray
 import android.view.*
 import android.widget.LinearLayout
 import androidx.annotation.RequiresApi
@@ -21,6 +20,8 @@ import androidx.core.os.bundleOf
 import androidx.core.view.isVisible
 import androidx.fragment.app.Fragment
 import androidx.fragment.app.activityViewModels
+import androidx.recyclerview.widget.AsyncListDiffer
+import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import com.boardgamegeek.R
 import com.boardgamegeek.auth.AccountUtils
@@ -36,6 +37,7 @@ import com.boardgamegeek.provider.BggContract
 import com.boardgamegeek.provider.BggContract.CollectionViews
 import com.boardgamegeek.sorter.CollectionSorter
 import com.boardgamegeek.sorter.CollectionSorterFactory
+import com.boardgamegeek.sorter.SortedCollection
 import com.boardgamegeek.ui.CollectionFragment.CollectionAdapter.CollectionItemViewHolder
 import com.boardgamegeek.ui.dialog.*
 import com.boardgamegeek.ui.dialog.CollectionFilterDialog.OnFilterChangedListener
@@ -90,6 +92,7 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
         super.onViewCreated(view, savedInstanceState)
 
         listView.adapter = adapter
+        listView.addHeader(adapter)
 
         if (isCreatingShortcut) {
             Snackbar.make(swipeRefreshLayout, R.string.msg_shortcut_create, Snackbar.LENGTH_LONG).show()
@@ -138,10 +141,9 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
         viewModel.refresh()
     }
 
-    private fun showData(items: List<CollectionItemEntity>) {
-        adapter.items = items
-
-        listView.addHeader(adapter)
+    private fun showData(sortedCollection: SortedCollection) {
+        val items = sortedCollection.items
+        adapter.submit(sortedCollection)
 
         rowCountView.text = numberFormat.format(items.size)
         invalidateMenu()
@@ -331,36 +333,73 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
     }
 
     inner class CollectionAdapter : RecyclerView.Adapter<CollectionItemViewHolder>(), SectionCallback {
-        var items: List<CollectionItemEntity> = emptyList()
-            set(value) {
-                field = value
-                notifyDataSetChanged()
-            }
+        private val differ = AsyncListDiffer(this, object : DiffUtil.ItemCallback<CollectionItemEntity>() {
+            override fun areItemsTheSame(oldItem: CollectionItemEntity, newItem: CollectionItemEntity) =
+                    oldItem.internalId == newItem.internalId
+
+            override fun areContentsTheSame(oldItem: CollectionItemEntity, newItem: CollectionItemEntity) =
+                    oldItem == newItem
+        })
+
+        /**
+         * The collection being shown. Swapped in once its diff is applied, so the sections always match the rows.
+         */
+        private var sortedCollection = SortedCollection.EMPTY
+
+        val items: List<CollectionItemEntity>
+            get() = differ.currentList
 
         init {
             setHasStableIds(true)
         }
 
-        private val selectedItems = SparseBooleanArray()
+        /**
+         * Diffs [newCollection] against the items shown off the main thread, then rebinds only the rows that changed -
+         * or every row if the sort changed, since what a row shows depends on the sort.
+         */
+        fun submit(newCollection: SortedCollection) {
+            differ.submitList(newCollection.items) {
+                val isSortChanged = newCollection.sorter?.type != sortedCollection.sorter?.type
+                sortedCollection = newCollection
+                if (isSortChanged) notifyItemRangeChanged(0, itemCount)
+                listView?.invalidateItemDecorations()
+                if (selectedItemIds.isNotEmpty() && selectedItemIds.retainAll(newCollection.items.mapTo(hashSetOf()) { it.internalId })) {
+                    updateActionMode() // selected items that were filtered out are no longer selected
+                }
+            }
+        }
+
+        /**
+         * The internal IDs of the selected items. Keyed by item rather than position, so the selection follows rows
+         * that move when the collection is diffed.
+         */
+        private val selectedItemIds = linkedSetOf<Long>()
 
         fun getItem(position: Int) = items.getOrNull(position)
 
-        val selectedItemCount = selectedItems.size()
+        val selectedItemCount: Int
+            get() = selectedItemIds.size
 
-        val selectedItemPositions: List<Int>
-            get() {
-                val items = ArrayList<Int>(selectedItems.size())
-                (0 until selectedItems.size()).mapTo(items) { selectedItems.keyAt(it) }
-                return items
-            }
+        val selectedItems: List<CollectionItemEntity>
+            get() = items.filter { it.internalId in selectedItemIds }
+
+        private fun isSelected(position: Int) = getItem(position)?.internalId in selectedItemIds
 
         fun toggleSelection(position: Int) {
-            if (selectedItems[position, false]) {
-                selectedItems.delete(position)
-            } else {
-                selectedItems.put(position, true)
+            val internalId = getItem(position)?.internalId ?: return
+            if (!selectedItemIds.remove(internalId)) selectedItemIds.add(internalId)
+            notifyItemChanged(position, PAYLOAD_SELECTION) // with a payload, the row isn't cross-faded and the section header doesn't flash
+            updateActionMode()
+        }
+
+        fun clearSelection() {
+            items.forEachIndexed { position, item ->
+                if (selectedItemIds.remove(item.internalId)) notifyItemChanged(position, PAYLOAD_SELECTION)
             }
-            notifyDataSetChanged() // I'd prefer to call notifyItemChanged(position), but that causes the section header to appear briefly
+            selectedItemIds.clear()
+        }
+
+        private fun updateActionMode() {
             actionMode?.let {
                 if (selectedItemCount == 0) {
                     it.finish()
@@ -370,11 +409,6 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
             }
         }
 
-        fun clearSelection() {
-            selectedItems.clear()
-            notifyDataSetChanged()
-        }
-
         override fun getItemCount() = items.size
 
         override fun getItemId(position: Int) = getItem(position)?.internalId ?: RecyclerView.NO_ID
@@ -387,9 +421,18 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
             holder.bindView(getItem(position), position)
         }
 
+        override fun onBindViewHolder(holder: CollectionItemViewHolder, position: Int, payloads: MutableList<Any>) {
+            if (payloads.isNotEmpty() && payloads.all { it == PAYLOAD_SELECTION }) {
+                holder.itemView.isActivated = isSelected(position)
+            } else {
+                onBindViewHolder(holder, position)
+            }
+        }
+
         inner class CollectionItemViewHolder(view: View) : RecyclerView.ViewHolder(view) {
             fun bindView(item: CollectionItemEntity?, position: Int) {
                 if (item == null) return
+                val sorter = sortedCollection.sorter
                 itemView.nameView.text = item.collectionName
                 val year = if (item.collectionYearPublished == YEAR_UNKNOWN) item.gameYearPublished else item.collectionYearPublished
                 itemView.yearView.text = year.asYear(context)
@@ -407,7 +450,7 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
                     itemView.ratingView.visibility = View.GONE
                 }
                 itemView.thumbnailView.loadThumbnail(item.thumbnailUrl)
-                itemView.isActivated = selectedItems[position, false]
+                itemView.isActivated = item.internalId in selectedItemIds
                 itemView.setOnClickListener {
                     when {
                         isCreatingShortcut -> createShortcut(item.gameId, item.gameName, item.thumbnailUrl)
@@ -416,7 +459,7 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
                             requireActivity().finish() // don't want to come back to collection activity in "pick a new game" mode
                         }
                         actionMode == null -> GameActivity.start(requireContext(), item.gameId, item.gameName, item.thumbnailUrl, item.heroImageUrl)
-                        else -> adapter.toggleSelection(position)
+                        else -> adapter.toggleSelection(bindingAdapterPosition) // rows that only moved aren't rebound
                     }
                 }
                 itemView.setOnLongClickListener {
@@ -425,26 +468,15 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
                     if (actionMode != null) return@setOnLongClickListener false
                     actionMode = requireActivity().startActionMode(this@CollectionFragment)
                     if (actionMode == null) return@setOnLongClickListener false
-                    toggleSelection(position)
+                    toggleSelection(bindingAdapterPosition)
                     true
                 }
             }
         }
 
-        override fun isSection(position: Int): Boolean {
-            if (position == RecyclerView.NO_POSITION) return false
-            if (items.isEmpty()) return false
-            if (position == 0) return true
-            if (position < 0 || position >= items.size) return false
-            val thisLetter = getSectionHeader(position)
-            val lastLetter = getSectionHeader(position - 1)
-            return thisLetter != lastLetter
-        }
+        override fun isSection(position: Int) = sortedCollection.isSection(position)
 
-        override fun getSectionHeader(position: Int): CharSequence {
-            val item = items.getOrNull(position) ?: return "-"
-            return sorter?.getHeaderText(item) ?: return "-"
-        }
+        override fun getSectionHeader(position: Int): CharSequence = sortedCollection.getSectionHeader(position)
     }
 
     fun createShortcut(id: Int, name: String, thumbnailUrl: String) {
@@ -504,35 +536,35 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
     }
 
     override fun onActionItemClicked(mode: ActionMode, item: MenuItem): Boolean {
-        if (!adapter.selectedItemPositions.iterator().hasNext()) return false
-        val ci = adapter.getItem(adapter.selectedItemPositions.iterator().next())
+        val selectedItems = adapter.selectedItems
+        val ci = selectedItems.firstOrNull() ?: return false
         when (item.itemId) {
             R.id.menu_log_play_form -> {
-                ci?.let { LogPlayActivity.logPlay(requireContext(), it.gameId, it.gameName, it.thumbnailUrl, it.imageUrl, it.heroImageUrl, it.arePlayersCustomSorted) }
+                LogPlayActivity.logPlay(requireContext(), ci.gameId, ci.gameName, ci.thumbnailUrl, ci.imageUrl, ci.heroImageUrl, ci.arePlayersCustomSorted)
                 mode.finish()
                 return true
             }
             R.id.menu_log_play_quick -> {
-                toast(resources.getQuantityString(R.plurals.msg_logging_plays, adapter.selectedItemCount))
-                for (position in adapter.selectedItemPositions) {
-                    adapter.getItem(position)?.let { context.logQuickPlay(it.gameId, it.gameName) }
+                toast(resources.getQuantityString(R.plurals.msg_logging_plays, selectedItems.size))
+                for (selectedItem in selectedItems) {
+                    context.logQuickPlay(selectedItem.gameId, selectedItem.gameName)
                 }
                 mode.finish()
                 return true
             }
             R.id.menu_log_play_wizard -> {
-                ci?.let { NewPlayActivity.start(requireContext(), it.gameId, it.gameName) }
+                NewPlayActivity.start(requireContext(), ci.gameId, ci.gameName)
                 mode.finish()
                 return true
             }
             R.id.menu_share -> {
                 val shareMethod = "Collection"
-                if (adapter.selectedItemCount == 1) {
-                    ci?.let { requireActivity().shareGame(it.gameId, it.gameName, shareMethod, firebaseAnalytics) }
+                if (selectedItems.size == 1) {
+                    requireActivity().shareGame(ci.gameId, ci.gameName, shareMethod, firebaseAnalytics)
                 } else {
-                    val games: MutableList<Pair<Int, String>> = ArrayList(adapter.selectedItemCount)
-                    for (position in adapter.selectedItemPositions) {
-                        adapter.getItem(position)?.let { games.add(Pair.create(it.gameId, it.gameName)) }
+                    val games: MutableList<Pair<Int, String>> = ArrayList(selectedItems.size)
+                    for (selectedItem in selectedItems) {
+                        games.add(Pair.create(selectedItem.gameId, selectedItem.gameName))
                     }
                     requireActivity().shareGames(games, shareMethod, firebaseAnalytics)
                 }
@@ -540,7 +572,7 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
                 return true
             }
             R.id.menu_link -> {
-                ci?.gameId?.let { activity.linkBgg(it) }
+                activity.linkBgg(ci.gameId)
                 mode.finish()
                 return true
             }
@@ -564,6 +596,7 @@ class CollectionFragment : Fragment(R.layout.fragment_collection), ActionMode.Ca
     companion object {
         private const val KEY_IS_CREATING_SHORTCUT = "IS_CREATING_SHORTCUT"
         private const val KEY_CHANGING_GAME_PLAY_ID = "KEY_CHANGING_GAME_PLAY_ID"
+        private const val PAYLOAD_SELECTION = "selection"
 
         fun newInstance(isCreatingShortcut: Boolean): CollectionFragment {
             return CollectionFragment().withArguments(
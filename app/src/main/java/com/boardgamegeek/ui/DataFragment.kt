@@ -12,6 +12,7 @@ import androidx.fragment.app.Fragment
 import androidx.fragment.app.activityViewModels
 import com.boardgamegeek.R
 import com.boardgamegeek.export.Constants
+import com.boardgamegeek.extensions.createThemedBuilder
 import com.boardgamegeek.ui.viewmodel.DataPortViewModel
 import com.boardgamegeek.ui.widget.DataStepRow
 import com.boardgamegeek.util.FileUtils
@@ -31,6 +32,7 @@ class DataFragment : Fragment(R.layout.fragment_data), DataStepRow.Listener {
         createDataRow(Constants.TYPE_COLLECTION_VIEWS, R.string.backup_type_collection_view, R.string.backup_description_collection_view)
         createDataRow(Constants.TYPE_GAMES, R.string.backup_type_game, R.string.backup_description_game)
         createDataRow(Constants.TYPE_USERS, R.string.backup_type_user, R.string.backup_description_user)
+        createDataRow(Constants.TYPE_PLAYS, R.string.backup_type_play, R.string.backup_description_play)
 
         viewModel.message.observe(viewLifecycleOwner) { event ->
             event.getContentIfNotHandled()?.let { content ->
@@ -46,6 +48,9 @@ class DataFragment : Fragment(R.layout.fragment_data), DataStepRow.Listener {
         viewModel.userProgress.observe(viewLifecycleOwner) { event ->
             updateProgress(Constants.TYPE_USERS, event.first, event.second)
         }
+        viewModel.playProgress.observe(viewLifecycleOwner) { event ->
+            updateProgress(Constants.TYPE_PLAYS, event.first, event.second)
+        }
     }
 
     private fun updateProgress(type: Int, max: Int, progress: Int) {
@@ -66,10 +71,40 @@ class DataFragment : Fragment(R.layout.fragment_data), DataStepRow.Listener {
     }
 
     override fun onExportClicked(type: Int) {
+        if (type == Constants.TYPE_PLAYS) {
+            viewModel.interruptedPlaysExport()?.let {
+                requireActivity().createThemedBuilder()
+                        .setTitle(R.string.title_resume_plays_export)
+                        .setMessage(R.string.msg_resume_plays_export)
+                        .setPositiveButton(R.string.resume) { _, _ -> exportPlays(it) }
+                        .setNegativeButton(R.string.start_over) { _, _ ->
+                            viewModel.discardInterruptedPlaysExport()
+                            startActivityForResult(createIntent(type, Intent.ACTION_CREATE_DOCUMENT), REQUEST_EXPORT + type)
+                        }
+                        .setCancelable(true)
+                        .show()
+                return
+            }
+        }
         startActivityForResult(createIntent(type, Intent.ACTION_CREATE_DOCUMENT), REQUEST_EXPORT + type)
     }
 
     override fun onImportClicked(type: Int) {
+        if (type == Constants.TYPE_PLAYS) {
+            viewModel.interruptedPlaysImport()?.let {
+                requireActivity().createThemedBuilder()
+                        .setTitle(R.string.title_resume_plays_import)
+                        .setMessage(R.string.msg_resume_plays_import)
+                        .setPositiveButton(R.string.resume) { _, _ -> importPlays(it) }
+                        .setNegativeButton(R.string.start_over) { _, _ ->
+                            viewModel.discardInterruptedPlaysImport()
+                            startActivityForResult(createIntent(type, Intent.ACTION_OPEN_DOCUMENT), REQUEST_IMPORT + type)
+                        }
+                        .setCancelable(true)
+                        .show()
+                return
+            }
+        }
         startActivityForResult(createIntent(type, Intent.ACTION_OPEN_DOCUMENT), REQUEST_IMPORT + type)
     }
 
@@ -78,12 +113,19 @@ class DataFragment : Fragment(R.layout.fragment_data), DataStepRow.Listener {
             Constants.TYPE_COLLECTION_VIEWS -> Constants.TYPE_COLLECTION_VIEWS_DESCRIPTION
             Constants.TYPE_GAMES -> Constants.TYPE_GAMES_DESCRIPTION
             Constants.TYPE_USERS -> Constants.TYPE_USERS_DESCRIPTION
+            Constants.TYPE_PLAYS -> Constants.TYPE_PLAYS_DESCRIPTION
             else -> ""
         }
         return Intent(action).apply {
             addCategory(Intent.CATEGORY_OPENABLE)
-            setType("text/json")
-            putExtra(Intent.EXTRA_TITLE, FileUtils.getExportFileName(typeDescription))
+            if (type == Constants.TYPE_PLAYS) {
+                // plays are backed up as gzipped JSON Lines
+                setType(if (action == Intent.ACTION_CREATE_DOCUMENT) "application/gzip" else "*/*")
+                putExtra(Intent.EXTRA_TITLE, "bgg4a-$typeDescription.jsonl.gz")
+            } else {
+                setType("text/json")
+                putExtra(Intent.EXTRA_TITLE, FileUtils.getExportFileName(typeDescription))
+            }
         }
     }
 
@@ -127,9 +169,23 @@ class DataFragment : Fragment(R.layout.fragment_data), DataStepRow.Listener {
                 viewModel.importUsers(uri)
                 logAction("Import")
             }
+            REQUEST_EXPORT_PLAY -> exportPlays(uri)
+            REQUEST_IMPORT_PLAY -> importPlays(uri)
         }
     }
 
+    private fun exportPlays(uri: Uri) {
+        findRow(Constants.TYPE_PLAYS)?.initProgressBar()
+        viewModel.exportPlays(uri)
+        logAction("Export")
+    }
+
+    private fun importPlays(uri: Uri) {
+        findRow(Constants.TYPE_PLAYS)?.initProgressBar()
+        viewModel.importPlays(uri)
+        logAction("Import")
+    }
+
     private fun logAction(action: String) {
         Firebase.analytics.logEvent("DataManagement") {
             param("Action", action)
@@ -145,9 +201,11 @@ class DataFragment : Fragment(R.layout.fragment_data), DataStepRow.Listener {
         private const val REQUEST_EXPORT_COLLECTION_VIEW = REQUEST_EXPORT + Constants.TYPE_COLLECTION_VIEWS
         private const val REQUEST_EXPORT_GAME = REQUEST_EXPORT + Constants.TYPE_GAMES
         private const val REQUEST_EXPORT_USER = REQUEST_EXPORT + Constants.TYPE_USERS
+        private const val REQUEST_EXPORT_PLAY = REQUEST_EXPORT + Constants.TYPE_PLAYS
         private const val REQUEST_IMPORT = 2000
         private const val REQUEST_IMPORT_COLLECTION_VIEW = REQUEST_IMPORT + Constants.TYPE_COLLECTION_VIEWS
         private const val REQUEST_IMPORT_GAME = REQUEST_IMPORT + Constants.TYPE_GAMES
         private const val REQUEST_IMPORT_USER = REQUEST_IMPORT + Constants.TYPE_USERS
+        private const val REQUEST_IMPORT_PLAY = REQUEST_IMPORT + Constants.TYPE_PLAYS
     }
 }
\ No newline at end of file
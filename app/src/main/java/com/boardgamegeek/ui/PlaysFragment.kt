@@ -11,6 +11,10 @@ import androidx.appcompat.app.AlertDialog
 import androidx.core.os.bundleOf
 import androidx.fragment.app.Fragment
 import androidx.fragment.app.activityViewModels
+import androidx.paging.AsyncPagedListDiffer
+import androidx.paging.PagedList
+import androidx.recyclerview.widget.AsyncListDiffer
+import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import com.boardgamegeek.R
 import com.boardgamegeek.entities.PlayEntity
@@ -19,7 +23,6 @@ import com.boardgamegeek.extensions.*
 import com.boardgamegeek.provider.BggContract.INVALID_ID
 import com.boardgamegeek.provider.BggContract.Plays
 import com.boardgamegeek.service.SyncService
-import com.boardgamegeek.ui.adapter.AutoUpdatableAdapter
 import com.boardgamegeek.ui.viewmodel.PlaysViewModel
 import com.boardgamegeek.ui.widget.RecyclerSectionItemDecoration
 import com.boardgamegeek.util.XmlApiMarkupConverter
@@ -30,7 +33,6 @@ import org.jetbrains.anko.support.v4.withArguments
 import java.text.SimpleDateFormat
 import java.util.*
 import kotlin.collections.ArrayList
-import kotlin.properties.Delegates
 
 open class PlaysFragment : Fragment(R.layout.fragment_plays), ActionMode.Callback {
     private val viewModel by activityViewModels<PlaysViewModel>()
@@ -59,7 +61,7 @@ open class PlaysFragment : Fragment(R.layout.fragment_plays), ActionMode.Callbac
 
         viewModel.plays.observe(viewLifecycleOwner) {
             showSyncingState(it.status == Status.REFRESHING)
-            adapter.items = it.data.orEmpty()
+            adapter.submitList(it.data.orEmpty())
             recyclerView.addHeader(adapter)
             progressBar.hide()
             if (it.data.isNullOrEmpty()) {
@@ -125,7 +127,7 @@ open class PlaysFragment : Fragment(R.layout.fragment_plays), ActionMode.Callbac
         swipeRefreshLayout.setOnRefreshListener { viewModel.refresh() }
     }
 
-    internal inner class PlayAdapter : RecyclerView.Adapter<PlayAdapter.ViewHolder>(), AutoUpdatableAdapter, RecyclerSectionItemDecoration.SectionCallback {
+    internal inner class PlayAdapter : RecyclerView.Adapter<PlayAdapter.ViewHolder>(), RecyclerSectionItemDecoration.SectionCallback {
         private val selectedItems = SparseBooleanArray()
 
         val selectedItemCount: Int
@@ -142,14 +144,38 @@ open class PlaysFragment : Fragment(R.layout.fragment_plays), ActionMode.Callbac
             setHasStableIds(true)
         }
 
-        var items: List<PlayEntity> by Delegates.observable(emptyList()) { _, old, new ->
-            autoNotify(old, new) { o, n ->
-                o.internalId == n.internalId
+        private val diffCallback = object : DiffUtil.ItemCallback<PlayEntity>() {
+            override fun areItemsTheSame(oldItem: PlayEntity, newItem: PlayEntity) = oldItem.internalId == newItem.internalId
+
+            override fun areContentsTheSame(oldItem: PlayEntity, newItem: PlayEntity) = oldItem == newItem
+        }
+
+        // paged lists and plain lists each get a differ that diffs off the main thread; only one holds a list at a time
+        private val pagedListDiffer = AsyncPagedListDiffer(this, diffCallback)
+        private val listDiffer = AsyncListDiffer(this, diffCallback)
+
+        /**
+         * May be a [PagedList], in which case pages are loaded as their positions are read.
+         */
+        fun submitList(list: List<PlayEntity>) {
+            if (list is PagedList<PlayEntity>) {
+                listDiffer.submitList(null)
+                pagedListDiffer.submitList(list)
+            } else {
+                pagedListDiffer.submitList(null)
+                listDiffer.submitList(list)
             }
         }
 
+        private val currentList: List<PlayEntity>
+            get() = pagedListDiffer.currentList ?: listDiffer.currentList
+
+        /**
+         * Returns the play at the position, loading the pages around it if the list is paged.
+         */
         fun getItem(position: Int): PlayEntity? {
-            return items.getOrNull(position)
+            if (position !in 0 until itemCount) return null
+            return if (pagedListDiffer.currentList != null) pagedListDiffer.getItem(position) else listDiffer.currentList[position]
         }
 
         fun areAllSelectedItemsPending(): Boolean {
@@ -180,9 +206,9 @@ open class PlaysFragment : Fragment(R.layout.fragment_plays), ActionMode.Callbac
             notifyDataSetChanged()
         }
 
-        override fun getItemCount() = items.size
+        override fun getItemCount() = currentList.size
 
-        override fun getItemId(position: Int) = getItem(position)?.internalId ?: RecyclerView.NO_ID
+        override fun getItemId(position: Int) = currentList.getOrNull(position)?.internalId ?: RecyclerView.NO_ID
 
         override fun onCreateViewHolder(parent: ViewGroup, viewType: Int) = ViewHolder(parent.inflate(R.layout.row_play))
 
@@ -231,8 +257,8 @@ open class PlaysFragment : Fragment(R.layout.fragment_plays), ActionMode.Callbac
 
         override fun isSection(position: Int): Boolean {
             if (position == RecyclerView.NO_POSITION) return false
-            if (items.isEmpty()) return false
-            if (position < 0 || position >= items.size) return false
+            if (currentList.isEmpty()) return false
+            if (position < 0 || position >= currentList.size) return false
             val thisLetter = getSectionHeader(position)
             val lastLetter = getSectionHeader(position - 1)
             return thisLetter != lastLetter
@@ -242,7 +268,7 @@ open class PlaysFragment : Fragment(R.layout.fragment_plays), ActionMode.Callbac
         private val dateFormat = SimpleDateFormat("MMMM yyyy", Locale.getDefault())
 
         override fun getSectionHeader(position: Int): CharSequence {
-            val play = items.getOrNull(position) ?: return "-"
+            val play = currentList.getOrNull(position) ?: return "-"
             return when (viewModel.sortType.value ?: PlaysViewModel.SortType.DATE) {
                 PlaysViewModel.SortType.DATE -> {
                     if (play.dateInMillis == PlayEntity.UNKNOWN_DATE)
@@ -13,6 +13,7 @@ import com.boardgamegeek.db.CollectionViewDao
 import com.boardgamegeek.entities.*
 import com.boardgamegeek.extensions.*
 import com.boardgamegeek.extensions.CollectionView.DEFAULT_DEFAULT_ID
+import com.boardgamegeek.filterer.CollectionFilterEngine
 import com.boardgamegeek.filterer.CollectionFilterer
 import com.boardgamegeek.filterer.CollectionFiltererFactory
 import com.boardgamegeek.mappers.createShortcutName
@@ -21,9 +22,8 @@ import com.boardgamegeek.provider.BggContract
 import com.boardgamegeek.repository.CollectionItemRepository
 import com.boardgamegeek.repository.CollectionViewRepository
 import com.boardgamegeek.sorter.CollectionSorterFactory
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
+import com.boardgamegeek.sorter.SortedCollection
+import kotlinx.coroutines.*
 import java.util.concurrent.TimeUnit
 
 class CollectionViewViewModel(application: Application) : AndroidViewModel(application) {
@@ -46,7 +46,9 @@ class CollectionViewViewModel(application: Application) : AndroidViewModel(appli
 
     val effectiveSortType = MediatorLiveData<Int>()
     val effectiveFilters = MediatorLiveData<List<CollectionFilterer>>()
-    val items = MediatorLiveData<List<CollectionItemEntity>>()
+    val items = MediatorLiveData<SortedCollection>()
+    private val filterEngine = CollectionFilterEngine()
+    private var filterJob: Job? = null
     private val syncTimestamp = MutableLiveData<Long>()
     private val _items: LiveData<RefreshableResource<List<CollectionItemEntity>>> = Transformations.switchMap(syncTimestamp) {
         itemRepository.loadCollection()
@@ -227,33 +229,21 @@ class CollectionViewViewModel(application: Application) : AndroidViewModel(appli
             sortType: Int = effectiveSortType.value ?: CollectionSorterFactory.TYPE_DEFAULT,
     ) {
         if (itemList == null) return
-        var list = itemList.asSequence()
-        if (_selectedViewId.value == DEFAULT_DEFAULT_ID) {
-            list = list.filter {
-                (prefs.isStatusSetToSync(COLLECTION_STATUS_OWN) && it.own) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_PREVIOUSLY_OWNED) && it.previouslyOwned) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_FOR_TRADE) && it.forTrade) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_WANT_IN_TRADE) && it.wantInTrade) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_WANT_TO_BUY) && it.wantToPlay) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_WISHLIST) && it.wishList) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_WANT_TO_PLAY) && it.wantToPlay) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_PREORDERED) && it.preOrdered) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_PLAYED) && it.numberOfPlays > 1) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_RATED) && it.rating > 0.0) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_COMMENTED) && it.comment.isNotBlank()) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_HAS_PARTS) && it.hasPartsList.isNotBlank()) ||
-                        (prefs.isStatusSetToSync(COLLECTION_STATUS_WANT_PARTS) && it.wantPartsList.isNotBlank())
-            }.asSequence()
-        } else {
-            filters.forEach { f ->
-                list = list.filter { f.filter(it) }.asSequence()
-            }
-        }
+        val statuses = if (_selectedViewId.value == DEFAULT_DEFAULT_ID) prefs.getSyncStatusesOrDefault().toSet() else null
         val sorter = collectionSorterFactory.create(sortType)
-        if (sorter == null) {
-            items.value = list.toList()
-        } else {
-            items.value = sorter.sort(list.toList())
+        // the filterers are changed on the main thread, so hand the worker copies of their current state
+        val filterData = filters.map { it.type to it.deflate() }
+        val previousJob = filterJob
+        filterJob = viewModelScope.launch(Dispatchers.Default) {
+            previousJob?.cancelAndJoin()
+            val filterSnapshot = filterData.mapNotNull { (type, data) ->
+                collectionFiltererFactory.create(type)?.apply { inflate(data) }
+            }
+            val list = filterEngine.filterAndSort(itemList, filterSnapshot, statuses, sorter)
+            val sortedCollection = SortedCollection(list, sorter)
+            withContext(Dispatchers.Main) {
+                items.value = sortedCollection
+            }
         }
     }
 
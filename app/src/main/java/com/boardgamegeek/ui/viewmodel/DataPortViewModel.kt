@@ -2,33 +2,48 @@ package com.boardgamegeek.ui.viewmodel
 
 import android.app.Application
 import android.content.ContentProviderOperation
-import android.content.ContentValues
 import android.database.Cursor
 import android.net.Uri
+import android.os.ParcelFileDescriptor
+import android.os.SystemClock
 import androidx.annotation.StringRes
 import androidx.core.content.contentValuesOf
+import androidx.core.content.edit
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import com.boardgamegeek.BggApplication
 import com.boardgamegeek.R
+import com.boardgamegeek.db.PlayDao
+import com.boardgamegeek.entities.PlayEntity
+import com.boardgamegeek.entities.PlayPlayerEntity
 import com.boardgamegeek.export.Constants
+import com.boardgamegeek.export.GzipMembersInputStream
 import com.boardgamegeek.export.model.*
 import com.boardgamegeek.extensions.applyBatch
 import com.boardgamegeek.extensions.getIntOrNull
 import com.boardgamegeek.extensions.load
-import com.boardgamegeek.extensions.rowExists
+import com.boardgamegeek.extensions.preferences
+import com.boardgamegeek.extensions.queryCount
+import com.boardgamegeek.extensions.queryInts
+import com.boardgamegeek.extensions.queryStrings
+import com.boardgamegeek.extensions.whereZeroOrNull
 import com.boardgamegeek.livedata.Event
 import com.boardgamegeek.provider.BggContract
 import com.boardgamegeek.provider.BggContract.CollectionViews
+import com.boardgamegeek.provider.BggContract.INVALID_ID
+import com.boardgamegeek.provider.BggContract.Plays
+import com.boardgamegeek.tasks.PlayStatsScheduler
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
+import com.google.gson.JsonObject
 import com.google.gson.stream.JsonReader
 import com.google.gson.stream.JsonToken
 import com.google.gson.stream.JsonWriter
-import org.jetbrains.anko.collections.forEachWithIndex
 import timber.log.Timber
 import java.io.*
+import java.nio.channels.FileChannel
+import java.util.zip.GZIPOutputStream
 
 class DataPortViewModel(application: Application) : AndroidViewModel(application) {
     val gson: Gson = GsonBuilder()
@@ -51,6 +66,10 @@ class DataPortViewModel(application: Application) : AndroidViewModel(application
     val userProgress: LiveData<Pair<Int, Int>>
         get() = _userProgress
 
+    private val _playProgress = MutableLiveData<Pair<Int, Int>>()
+    val playProgress: LiveData<Pair<Int, Int>>
+        get() = _playProgress
+
     fun exportCollectionViews(uri: Uri) {
         export(uri,
                 Constants.TYPE_COLLECTION_VIEWS_DESCRIPTION,
@@ -164,6 +183,220 @@ class DataPortViewModel(application: Application) : AndroidViewModel(application
         )
     }
 
+    /**
+     * The file of a plays export that was interrupted, if any; exporting to it again resumes the export.
+     */
+    fun interruptedPlaysExport(): Uri? = getApplication<BggApplication>().preferences().getString(KEY_EXPORT_PLAYS_URI, null)?.let { Uri.parse(it) }
+
+    /**
+     * Forgets the interrupted plays export, so the next export starts over in a new file.
+     */
+    fun discardInterruptedPlaysExport() {
+        clearCheckpoint(KEY_EXPORT_PLAYS_URI, KEY_EXPORT_PLAYS_LAST_ID, KEY_EXPORT_PLAYS_OFFSET, KEY_EXPORT_PLAYS_COUNT)
+    }
+
+    /**
+     * The file of a plays import that was interrupted, if any; importing it again resumes the import.
+     */
+    fun interruptedPlaysImport(): Uri? = getApplication<BggApplication>().preferences().getString(KEY_IMPORT_PLAYS_URI, null)?.let { Uri.parse(it) }
+
+    /**
+     * Forgets the interrupted plays import, so the next import starts from the first play.
+     */
+    fun discardInterruptedPlaysImport() {
+        clearCheckpoint(KEY_IMPORT_PLAYS_URI, KEY_IMPORT_PLAYS_COUNT)
+    }
+
+    /**
+     * Backs up every play, with its players, as gzipped JSON Lines: a header line with the type and version, then one
+     * play per line. Each page of plays is written as its own gzip member, and the last play and file offset of each
+     * completed page are saved as a checkpoint, so an interrupted export to the same file picks up where it left off.
+     * If the file's provider can't seek in it, the plays are written from the start without checkpoints instead.
+     */
+    fun exportPlays(uri: Uri) {
+        val context = getApplication<BggApplication>()
+        var isSeekable = true
+        val pfd = try {
+            openForSeeking(uri) ?: run {
+                isSeekable = false
+                context.contentResolver.openFileDescriptor(uri, "w")
+            }
+        } catch (e: SecurityException) {
+            Timber.w(e)
+            if (interruptedPlaysExport() == uri) discardInterruptedPlaysExport()
+            postMessage(R.string.msg_export_failed_permissions, uri)
+            return
+        } catch (e: FileNotFoundException) {
+            Timber.w(e)
+            if (interruptedPlaysExport() == uri) discardInterruptedPlaysExport()
+            postMessage(R.string.msg_export_failed_file_not_found, uri)
+            return
+        }
+        if (pfd == null) {
+            if (interruptedPlaysExport() == uri) discardInterruptedPlaysExport()
+            postMessage(R.string.msg_export_failed_null_pfd, uri)
+            return
+        }
+
+        context.appExecutors.diskRead.execute {
+            val prefs = context.preferences()
+            var file: ParcelFileDescriptor = pfd
+            var out = FileOutputStream(file.fileDescriptor)
+            var lastInternalId = 0L
+            var numExported = 0
+            try {
+                val offset = if (isSeekable) seekToExportCheckpoint(uri, out.channel) else null
+                if (offset == null && isSeekable) {
+                    file.close()
+                    file = context.contentResolver.openFileDescriptor(uri, "w")
+                            ?: throw FileNotFoundException("Unable to reopen $uri for writing")
+                    out = FileOutputStream(file.fileDescriptor)
+                }
+                val isResumable = offset != null
+                if (!isResumable && interruptedPlaysExport() == uri) discardInterruptedPlaysExport()
+
+                if (offset != null && offset > 0) {
+                    lastInternalId = prefs.getLong(KEY_EXPORT_PLAYS_LAST_ID, 0L)
+                    numExported = prefs.getInt(KEY_EXPORT_PLAYS_COUNT, 0)
+                    Timber.i("Resuming the plays export after %,d plays", numExported)
+                } else {
+                    writeGzipMember(out) { writer ->
+                        writer.write(gson.toJson(mapOf(Constants.NAME_TYPE to Constants.TYPE_PLAYS_DESCRIPTION, Constants.NAME_VERSION to PLAYS_VERSION)))
+                        writer.write("\n")
+                    }
+                    if (isResumable) saveExportCheckpoint(uri, 0L, 0, out.channel.position())
+                }
+
+                val playDao = PlayDao(context)
+                val total = numExported + context.contentResolver.queryCount(
+                        Plays.CONTENT_URI,
+                        "(${Plays.DELETE_TIMESTAMP.whereZeroOrNull()}) AND plays.${Plays._ID}>?",
+                        arrayOf(lastInternalId.toString()))
+                while (true) {
+                    _playProgress.postValue(total to numExported)
+                    val plays = playDao.loadPlaysWithPlayersAfter(lastInternalId, EXPORT_PAGE_SIZE)
+                    if (plays.isEmpty()) break
+                    writeGzipMember(out) { writer ->
+                        plays.forEach { play ->
+                            gson.toJson(play.toModel(), Play::class.java, writer)
+                            writer.write("\n")
+                        }
+                    }
+                    lastInternalId = plays.last().internalId
+                    numExported += plays.size
+                    if (isResumable) {
+                        file.fileDescriptor.sync()
+                        saveExportCheckpoint(uri, lastInternalId, numExported, out.channel.position())
+                    }
+                }
+
+                clearCheckpoint(KEY_EXPORT_PLAYS_URI, KEY_EXPORT_PLAYS_LAST_ID, KEY_EXPORT_PLAYS_OFFSET, KEY_EXPORT_PLAYS_COUNT)
+                Timber.i("Exported %,d plays", numExported)
+                postMessage(R.string.msg_export_success)
+            } catch (e: Exception) {
+                Timber.e(e, "Exporting plays after %,d plays", numExported)
+                postMessage(R.string.msg_export_interrupted, numExported)
+            } finally {
+                _playProgress.postValue(numExported to numExported)
+                try {
+                    file.close()
+                } catch (e: IOException) {
+                    Timber.w(e)
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the file for reading and writing, or returns null if its provider doesn't support that, as is the case for
+     * many cloud storage providers.
+     */
+    private fun openForSeeking(uri: Uri): ParcelFileDescriptor? {
+        return try {
+            getApplication<BggApplication>().contentResolver.openFileDescriptor(uri, "rw")
+        } catch (e: FileNotFoundException) {
+            Timber.i(e, "Unable to open %s for reading and writing", uri)
+            null
+        } catch (e: SecurityException) {
+            Timber.i(e, "Unable to open %s for reading and writing", uri)
+            null
+        } catch (e: IllegalArgumentException) {
+            Timber.i(e, "Unable to open %s for reading and writing", uri)
+            null
+        } catch (e: UnsupportedOperationException) {
+            Timber.i(e, "Unable to open %s for reading and writing", uri)
+            null
+        }
+    }
+
+    /**
+     * Moves the channel to the end of the last page saved by an interrupted export to the same file, dropping anything
+     * written after it, or empties the file to start over. Returns the offset it moved to, or null if the file can't be
+     * sought in, e.g. because the provider handed back a pipe.
+     */
+    private fun seekToExportCheckpoint(uri: Uri, channel: FileChannel): Long? {
+        val prefs = getApplication<BggApplication>().preferences()
+        val checkpointOffset = prefs.getLong(KEY_EXPORT_PLAYS_OFFSET, 0L)
+        return try {
+            val offset = if (prefs.getString(KEY_EXPORT_PLAYS_URI, null) == uri.toString() && checkpointOffset in 1..channel.size()) checkpointOffset else 0L
+            channel.truncate(offset)
+            channel.position(offset)
+            offset
+        } catch (e: IOException) {
+            Timber.w(e, "Unable to seek in %s; exporting plays without checkpoints", uri)
+            null
+        } catch (e: UnsupportedOperationException) {
+            Timber.w(e, "Unable to seek in %s; exporting plays without checkpoints", uri)
+            null
+        }
+    }
+
+    /**
+     * Writes a complete gzip member to the stream, leaving the stream open for the next one.
+     */
+    private fun writeGzipMember(out: OutputStream, write: (writer: Writer) -> Unit) {
+        val gzip = GZIPOutputStream(out)
+        val writer = BufferedWriter(OutputStreamWriter(gzip, "UTF-8"))
+        write(writer)
+        writer.flush()
+        gzip.finish()
+        out.flush()
+    }
+
+    private fun saveExportCheckpoint(uri: Uri, lastInternalId: Long, count: Int, offset: Long) {
+        getApplication<BggApplication>().preferences().edit(commit = true) {
+            putString(KEY_EXPORT_PLAYS_URI, uri.toString())
+            putLong(KEY_EXPORT_PLAYS_LAST_ID, lastInternalId)
+            putInt(KEY_EXPORT_PLAYS_COUNT, count)
+            putLong(KEY_EXPORT_PLAYS_OFFSET, offset)
+        }
+    }
+
+    private fun clearCheckpoint(vararg keys: String) {
+        getApplication<BggApplication>().preferences().edit {
+            keys.forEach { remove(it) }
+        }
+    }
+
+    private fun PlayEntity.toModel() = Play(
+            playId = playId,
+            date = dateForDatabase(),
+            gameId = gameId,
+            gameName = gameName,
+            quantity = quantity,
+            length = length,
+            location = location,
+            incomplete = incomplete,
+            noWinStats = noWinStats,
+            comments = comments,
+            startTime = startTime,
+            updateTimestamp = updateTimestamp,
+            dirtyTimestamp = dirtyTimestamp,
+            players = players.map {
+                Player(it.name, it.username, it.startingPosition, it.color, it.score, it.rating, it.userId, it.isNew, it.isWin)
+            },
+    )
+
     private fun export(
             uri: Uri,
             typeDescription: String,
@@ -196,7 +429,7 @@ class DataPortViewModel(application: Application) : AndroidViewModel(application
             return
         }
 
-        getApplication<BggApplication>().appExecutors.diskIO.execute {
+        getApplication<BggApplication>().appExecutors.diskRead.execute {
             val out: OutputStream = FileOutputStream(pfd.fileDescriptor)
 
             try {
@@ -251,24 +484,27 @@ class DataPortViewModel(application: Application) : AndroidViewModel(application
                 { reader ->
                     gson.fromJson(reader, CollectionView::class.java)
                 },
-                { item: CollectionView, _ ->
+                { items: List<CollectionView>, _ ->
+                    // each view's filters are inserted by the view's URI, so views can't share a batch
                     val contentResolver = getApplication<BggApplication>().contentResolver
-                    val values = contentValuesOf(
-                            CollectionViews.NAME to item.name,
-                            CollectionViews.STARRED to item.starred,
-                            CollectionViews.SORT_TYPE to item.sortType,
-                    )
-                    val insertedUri = contentResolver.insert(CollectionViews.CONTENT_URI, values)
-                    val viewId = CollectionViews.getViewId(insertedUri)
-                    val filterUri = CollectionViews.buildViewFilterUri(viewId.toLong())
-                    val batch = arrayListOf<ContentProviderOperation>()
-                    for (filter in item.filters) {
-                        val builder = ContentProviderOperation.newInsert(filterUri)
-                                .withValue(BggContract.CollectionViewFilters.TYPE, filter.type)
-                                .withValue(BggContract.CollectionViewFilters.DATA, filter.data)
-                        batch.add(builder.build())
+                    for (item in items) {
+                        val values = contentValuesOf(
+                                CollectionViews.NAME to item.name,
+                                CollectionViews.STARRED to item.starred,
+                                CollectionViews.SORT_TYPE to item.sortType,
+                        )
+                        val insertedUri = contentResolver.insert(CollectionViews.CONTENT_URI, values)
+                        val viewId = CollectionViews.getViewId(insertedUri)
+                        val filterUri = CollectionViews.buildViewFilterUri(viewId.toLong())
+                        val batch = arrayListOf<ContentProviderOperation>()
+                        for (filter in item.filters) {
+                            val builder = ContentProviderOperation.newInsert(filterUri)
+                                    .withValue(BggContract.CollectionViewFilters.TYPE, filter.type)
+                                    .withValue(BggContract.CollectionViewFilters.DATA, filter.data)
+                            batch.add(builder.build())
+                        }
+                        contentResolver.applyBatch(batch)
                     }
-                    contentResolver.applyBatch(batch)
                 },
                 {
                     getApplication<BggApplication>().contentResolver.delete(CollectionViews.CONTENT_URI, null, null)
@@ -284,19 +520,22 @@ class DataPortViewModel(application: Application) : AndroidViewModel(application
                 { reader ->
                     gson.fromJson(reader, Game::class.java)
                 },
-                { item: Game, _ ->
+                { items: List<Game>, _ ->
                     val contentResolver = getApplication<BggApplication>().contentResolver
-                    if (contentResolver.rowExists(BggContract.Games.buildGameUri(item.id))) {
+                    val existingGameIds = contentResolver.queryInts(
+                            BggContract.Games.CONTENT_URI,
+                            BggContract.Games.GAME_ID,
+                            "games.${BggContract.Games.GAME_ID} IN (${items.joinToString(",") { it.id.toString() }})"
+                    ).toSet()
+                    val batch = arrayListOf<ContentProviderOperation>()
+                    items.filter { existingGameIds.contains(it.id) }.forEach { item ->
                         val gameColorsUri = BggContract.Games.buildColorsUri(item.id)
-                        contentResolver.delete(gameColorsUri, null, null)
-                        val values = mutableListOf<ContentValues>()
-                        item.colors.filter { it.color.isNotBlank() }.forEach { color ->
-                            values.add(contentValuesOf(BggContract.GameColors.COLOR to color.color))
-                        }
-                        if (values.isNotEmpty()) {
-                            contentResolver.bulkInsert(gameColorsUri, values.toTypedArray())
+                        batch.add(ContentProviderOperation.newDelete(gameColorsUri).build())
+                        item.colors.map { it.color }.filter { it.isNotBlank() }.distinct().forEach { color ->
+                            batch.add(ContentProviderOperation.newInsert(gameColorsUri).withValue(BggContract.GameColors.COLOR, color).build())
                         }
                     }
+                    contentResolver.applyBatch(batch, "Importing game colors")
                 },
         )
     }
@@ -309,37 +548,186 @@ class DataPortViewModel(application: Application) : AndroidViewModel(application
                 { reader: JsonReader ->
                     gson.fromJson(reader, User::class.java)
                 },
-                { item: User, _: Int ->
+                { items: List<User>, _: Int ->
                     val contentResolver = getApplication<BggApplication>().contentResolver
-                    if (contentResolver.rowExists(BggContract.Buddies.buildBuddyUri(item.name))) {
-                        val batch = arrayListOf<ContentProviderOperation>()
+                    val names = items.map { it.name }.distinct()
+                    val placeholders = names.joinToString(",") { "?" }
+                    val existingBuddies = contentResolver.queryStrings(
+                            BggContract.Buddies.CONTENT_URI,
+                            BggContract.Buddies.BUDDY_NAME,
+                            "${BggContract.Buddies.BUDDY_NAME} IN ($placeholders)",
+                            names.toTypedArray()
+                    ).toSet()
+                    val existingColors = mutableSetOf<Pair<String, Int>>()
+                    contentResolver.load(
+                            BggContract.PlayerColors.CONTENT_URI,
+                            arrayOf(BggContract.PlayerColors.PLAYER_NAME, BggContract.PlayerColors.PLAYER_COLOR_SORT_ORDER),
+                            "${BggContract.PlayerColors.PLAYER_TYPE}=? AND ${BggContract.PlayerColors.PLAYER_NAME} IN ($placeholders)",
+                            arrayOf(BggContract.PlayerColors.TYPE_USER.toString()) + names
+                    )?.use {
+                        while (it.moveToNext()) {
+                            existingColors += it.getString(0).orEmpty() to it.getInt(1)
+                        }
+                    }
+
+                    val batch = arrayListOf<ContentProviderOperation>()
+                    items.filter { existingBuddies.contains(it.name) }.forEach { item ->
                         item.colors.filter { it.color.isNotBlank() }.forEach { color ->
-                            val builder = if (contentResolver.rowExists(BggContract.PlayerColors.buildUserUri(item.name, color.sort))) {
+                            val builder = if (existingColors.contains(item.name to color.sort)) {
                                 ContentProviderOperation
                                         .newUpdate(BggContract.PlayerColors.buildUserUri(item.name, color.sort))
                             } else {
+                                existingColors += item.name to color.sort
                                 ContentProviderOperation
                                         .newInsert(BggContract.PlayerColors.buildUserUri(item.name))
                                         .withValue(BggContract.PlayerColors.PLAYER_COLOR_SORT_ORDER, color.sort)
                             }
                             batch.add(builder.withValue(BggContract.PlayerColors.PLAYER_COLOR, color.color).build())
                         }
-                        contentResolver.applyBatch(batch)
                     }
+                    contentResolver.applyBatch(batch, "Importing player colors")
                 },
         )
     }
 
+    /**
+     * Restores a backup written by [exportPlays], a chunk of plays per transaction. The number of plays restored is
+     * saved as a checkpoint after each chunk, so importing the same file again after an interruption skips them.
+     */
+    fun importPlays(uri: Uri) {
+        val context = getApplication<BggApplication>()
+        val pfd = try {
+            context.contentResolver.openFileDescriptor(uri, "r")
+        } catch (e: SecurityException) {
+            Timber.w(e)
+            if (interruptedPlaysImport() == uri) discardInterruptedPlaysImport()
+            postMessage(R.string.msg_import_failed_file_not_read, uri)
+            return
+        } catch (e: FileNotFoundException) {
+            Timber.w(e)
+            if (interruptedPlaysImport() == uri) discardInterruptedPlaysImport()
+            postMessage(R.string.msg_import_failed_file_not_exist, uri)
+            return
+        }
+        if (pfd == null) {
+            if (interruptedPlaysImport() == uri) discardInterruptedPlaysImport()
+            postMessage(R.string.msg_export_failed_null_pfd, uri)
+            return
+        }
+
+        context.appExecutors.diskWrite.execute {
+            val prefs = context.preferences()
+            val fileSize = pfd.statSize
+            val input = CountingInputStream(FileInputStream(pfd.fileDescriptor))
+            val reader = BufferedReader(InputStreamReader(GzipMembersInputStream(BufferedInputStream(input)), "UTF-8"))
+            val playDao = PlayDao(context)
+            val chunk = ArrayList<PlayEntity>(IMPORT_CHUNK_SIZE)
+            val linesToSkip = if (prefs.getString(KEY_IMPORT_PLAYS_URI, null) == uri.toString()) prefs.getInt(KEY_IMPORT_PLAYS_COUNT, 0) else 0
+            var numRead = 0
+            var numRestored = 0
+            var lastProgressAt = 0L
+            val startTime = SystemClock.elapsedRealtime()
+
+            fun flush() {
+                if (chunk.isEmpty()) return
+                numRestored += playDao.restore(chunk)
+                chunk.clear()
+                // written synchronously, so a crash right after the batch can't leave the checkpoint behind it
+                prefs.edit(commit = true) {
+                    putString(KEY_IMPORT_PLAYS_URI, uri.toString())
+                    putInt(KEY_IMPORT_PLAYS_COUNT, numRead)
+                }
+                val now = SystemClock.elapsedRealtime()
+                if (now - lastProgressAt >= PROGRESS_INTERVAL_MS) {
+                    lastProgressAt = now
+                    _playProgress.postValue(if (fileSize > 0) {
+                        PROGRESS_MAX to (input.count * PROGRESS_MAX / fileSize).toInt().coerceAtMost(PROGRESS_MAX - 1)
+                    } else {
+                        numRead + 1 to numRead
+                    })
+                }
+            }
+
+            try {
+                val header = gson.fromJson(reader.readLine().orEmpty(), JsonObject::class.java)
+                val type = header?.get(Constants.NAME_TYPE)?.asString.orEmpty()
+                if (type != Constants.TYPE_PLAYS_DESCRIPTION) {
+                    postMessage(R.string.msg_import_failed_wrong_type, Constants.TYPE_PLAYS_DESCRIPTION, type)
+                    return@execute
+                }
+                if (linesToSkip > 0) Timber.i("Resuming the plays import after %,d plays", linesToSkip)
+
+                while (true) {
+                    val line = reader.readLine() ?: break
+                    if (line.isBlank()) continue
+                    numRead++
+                    if (numRead <= linesToSkip) continue
+                    chunk += gson.fromJson(line, Play::class.java).toEntity()
+                    if (chunk.size >= IMPORT_CHUNK_SIZE) flush()
+                }
+                flush()
+
+                clearCheckpoint(KEY_IMPORT_PLAYS_URI, KEY_IMPORT_PLAYS_COUNT)
+                val elapsedMillis = (SystemClock.elapsedRealtime() - startTime).coerceAtLeast(1)
+                Timber.i("Restored %,d plays in %,d ms (%,d plays/sec)", numRestored, elapsedMillis, numRestored * 1000L / elapsedMillis)
+                PlayStatsScheduler.schedule(context)
+                postMessage(R.string.msg_import_success)
+            } catch (e: Exception) {
+                Timber.w(e, "Importing plays after %,d plays", numRead)
+                postMessage(R.string.msg_import_interrupted, prefs.getInt(KEY_IMPORT_PLAYS_COUNT, 0))
+            } finally {
+                _playProgress.postValue(numRead to numRead)
+                try {
+                    reader.close()
+                } catch (e: IOException) {
+                    Timber.w(e, "Failed trying to close the reader")
+                }
+                try {
+                    pfd.close()
+                } catch (e: IOException) {
+                    Timber.w(e)
+                }
+            }
+        }
+    }
+
+    private fun Play.toEntity() = PlayEntity(
+            internalId = INVALID_ID.toLong(),
+            playId = playId,
+            rawDate = date,
+            gameId = gameId,
+            gameName = gameName,
+            quantity = quantity,
+            length = length,
+            location = location,
+            incomplete = incomplete,
+            noWinStats = noWinStats,
+            comments = comments,
+            syncTimestamp = 0L,
+            initialPlayerCount = players.size,
+            dirtyTimestamp = dirtyTimestamp,
+            updateTimestamp = updateTimestamp,
+            startTime = startTime,
+    ).apply {
+        players.forEach {
+            addPlayer(PlayPlayerEntity(it.name, it.username, it.startingPosition, it.color, it.score, it.rating, it.userId, it.isNew, it.isWin))
+        }
+    }
+
+    /**
+     * Reads the JSON file as a stream, handing records to [importRecords] in chunks of [IMPORT_CHUNK_SIZE] as they are
+     * parsed, so memory use doesn't grow with the size of the file. Progress is reported in thousandths of the file
+     * read, at most every [PROGRESS_INTERVAL_MS].
+     */
     private fun <T> import(
             uri: Uri,
             typeDescription: String,
             progress: MutableLiveData<Pair<Int, Int>>,
             parseItem: (reader: JsonReader) -> T,
-            importRecord: (item: T, version: Int) -> Unit,
+            importRecords: (items: List<T>, version: Int) -> Unit,
             initializeImport: () -> Unit = {},
     ) {
         val context = getApplication<BggApplication>()
-        val items: MutableList<T> = mutableListOf()
 
         val pfd = try {
             context.contentResolver.openFileDescriptor(uri, "r")
@@ -357,67 +745,119 @@ class DataPortViewModel(application: Application) : AndroidViewModel(application
             return
         }
 
-        var version = 0
-        getApplication<BggApplication>().appExecutors.diskIO.execute {
-            val reader = JsonReader(InputStreamReader(FileInputStream(pfd.fileDescriptor), "UTF-8"))
+        getApplication<BggApplication>().appExecutors.diskWrite.execute {
+            val fileSize = pfd.statSize
+            val input = CountingInputStream(FileInputStream(pfd.fileDescriptor))
+            val reader = JsonReader(InputStreamReader(input, "UTF-8"))
+            val chunk = ArrayList<T>(IMPORT_CHUNK_SIZE)
+            var version = 0
+            var isInitialized = false
+            var numImported = 0
+            var lastProgressAt = 0L
+            val startTime = SystemClock.elapsedRealtime()
+
+            fun flush() {
+                if (chunk.isEmpty()) return
+                importRecords(chunk, version)
+                numImported += chunk.size
+                chunk.clear()
+                val now = SystemClock.elapsedRealtime()
+                if (now - lastProgressAt >= PROGRESS_INTERVAL_MS) {
+                    lastProgressAt = now
+                    progress.postValue(if (fileSize > 0) {
+                        PROGRESS_MAX to (input.count * PROGRESS_MAX / fileSize).toInt().coerceAtMost(PROGRESS_MAX - 1)
+                    } else {
+                        numImported + 1 to numImported
+                    })
+                }
+            }
+
+            fun readItems() {
+                if (!isInitialized) {
+                    initializeImport()
+                    isInitialized = true
+                }
+                reader.beginArray()
+                while (reader.hasNext()) {
+                    chunk += parseItem(reader)
+                    if (chunk.size >= IMPORT_CHUNK_SIZE) flush()
+                }
+                reader.endArray()
+                flush()
+            }
+
             try {
                 if (reader.peek() == JsonToken.BEGIN_ARRAY) {
-                    reader.beginArray()
-                    while (reader.hasNext()) {
-                        items += parseItem(reader)
-                    }
-                    reader.endArray()
+                    readItems()
                 } else {
                     reader.beginObject()
                     while (reader.hasNext()) {
                         when (reader.nextName()) {
                             Constants.NAME_TYPE -> reader.nextString().also {
                                 if (it != typeDescription) {
-                                    progress.postValue(items.size to items.size)
+                                    progress.postValue(numImported to numImported)
                                     postMessage(R.string.msg_import_failed_wrong_type, typeDescription, it!!)
                                     return@execute
                                 }
                             }
                             Constants.NAME_VERSION -> version = reader.nextInt()
-                            Constants.NAME_ITEMS -> {
-                                reader.beginArray()
-                                while (reader.hasNext()) {
-                                    items += parseItem(reader)
-                                }
-                                reader.endArray()
-                            }
+                            Constants.NAME_ITEMS -> readItems()
                             else -> reader.skipValue()
                         }
                     }
                     reader.endObject()
                 }
+
+                val elapsedMillis = (SystemClock.elapsedRealtime() - startTime).coerceAtLeast(1)
+                Timber.i("Imported %,d %s records in %,d ms (%,d records/sec)", numImported, typeDescription, elapsedMillis, numImported * 1000L / elapsedMillis)
+                postMessage(R.string.msg_import_success)
             } catch (e: Exception) {
-                progress.postValue(items.size to items.size)
-                Timber.w(e, "Importing %s JSON file.", typeDescription)
+                Timber.w(e, "Importing %s JSON file after %,d records.", typeDescription, numImported)
                 postMessage(R.string.msg_import_failed_parse_json)
             } finally {
+                progress.postValue(numImported to numImported)
                 try {
                     reader.close()
                 } catch (e: IOException) {
-                    progress.postValue(items.size to items.size)
                     Timber.w(e, "Failed trying to close the JsonReader")
                 }
+                try {
+                    pfd.close()
+                } catch (e: IOException) {
+                    Timber.w(e)
+                }
             }
+        }
+    }
 
-            initializeImport()
-            items.forEachWithIndex { i, item ->
-                progress.postValue(items.size to i)
-                importRecord(item, version)
-            }
+    private class CountingInputStream(input: InputStream) : FilterInputStream(input) {
+        var count = 0L
+            private set
 
-            try {
-                pfd.close()
-            } catch (e: IOException) {
-                Timber.w(e)
-            }
+        override fun read(): Int {
+            return super.read().also { if (it != -1) count++ }
+        }
 
-            progress.postValue(items.size to items.size)
-            postMessage(R.string.msg_import_success)
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            return super.read(b, off, len).also { if (it > 0) count += it }
         }
+
+        override fun skip(n: Long): Long {
+            return super.skip(n).also { count += it }
+        }
+    }
+
+    companion object {
+        private const val IMPORT_CHUNK_SIZE = 100
+        private const val PROGRESS_INTERVAL_MS = 250L
+        private const val PROGRESS_MAX = 1000
+        private const val EXPORT_PAGE_SIZE = 500
+        private const val PLAYS_VERSION = 1
+        private const val KEY_EXPORT_PLAYS_URI = "export_plays_uri"
+        private const val KEY_EXPORT_PLAYS_LAST_ID = "export_plays_last_id"
+        private const val KEY_EXPORT_PLAYS_COUNT = "export_plays_count"
+        private const val KEY_EXPORT_PLAYS_OFFSET = "export_plays_offset"
+        private const val KEY_IMPORT_PLAYS_URI = "import_plays_uri"
+        private const val KEY_IMPORT_PLAYS_COUNT = "import_plays_count"
     }
-}
\ No newline at end of file
+}
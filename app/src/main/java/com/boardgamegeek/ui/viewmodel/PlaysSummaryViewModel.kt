@@ -26,19 +26,19 @@ class PlaysSummaryViewModel(application: Application) : AndroidViewModel(applica
     private val playRepository = PlayRepository(getApplication())
 
     val plays: LiveData<RefreshableResource<List<PlayEntity>>> = Transformations.switchMap(syncTimestamp) {
-        playRepository.getPlays()
+        playRepository.getRecentPlays(ITEMS_TO_DISPLAY)
     }
 
-    val playCount: LiveData<Int> = Transformations.map(plays) { list ->
-        list?.data?.sumBy { it.quantity } ?: 0
+    val playCount: LiveData<Int> = Transformations.switchMap(syncTimestamp) {
+        playRepository.loadPlayCount()
     }
 
-    val playsInProgress: LiveData<List<PlayEntity>> = Transformations.map(plays) { list ->
-        list?.data?.filter { it.dirtyTimestamp > 0L }
+    val playsInProgress: LiveData<List<PlayEntity>> = Transformations.switchMap(syncTimestamp) {
+        playRepository.loadDraftPlays()
     }
 
     val playsNotInProgress: LiveData<List<PlayEntity>> = Transformations.map(plays) { list ->
-        list?.data?.filter { it.dirtyTimestamp == 0L }?.take(ITEMS_TO_DISPLAY)
+        list?.data
     }
 
     val players: LiveData<List<PlayerEntity>> =
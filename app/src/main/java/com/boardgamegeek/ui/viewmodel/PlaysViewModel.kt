@@ -90,6 +90,17 @@ class PlaysViewModel(application: Application) : AndroidViewModel(application) {
         }
     }
 
+    /**
+     * The total quantity of the plays. Summed in the database for the full list, as that list is paged.
+     */
+    val playCount: LiveData<Int> = Transformations.switchMap(playInfo) {
+        if (it.mode == Mode.ALL && it.filter == FilterType.ALL) {
+            playRepository.loadPlayCount()
+        } else {
+            Transformations.map(plays) { resource -> resource.data?.sumBy { play -> play.quantity } ?: 0 }
+        }
+    }
+
     val filterType: LiveData<FilterType> = Transformations.map(playInfo) {
         it.filter
     }
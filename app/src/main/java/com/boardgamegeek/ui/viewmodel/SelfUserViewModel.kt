@@ -28,7 +28,7 @@ class SelfUserViewModel(application: Application) : AndroidViewModel(application
             username.isNotBlank() -> {
                 val mediatorLiveData = MediatorLiveData<RefreshableResource<UserEntity>>()
                 mediatorLiveData.addSource(userRepository.loadUser(username)) {
-                    getApplication<BggApplication>().appExecutors.diskIO.execute {
+                    getApplication<BggApplication>().appExecutors.diskWrite.execute {
                         if (it.status == Status.SUCCESS &&
                                 username == Authenticator.getAccount(application)?.name) {
                             it.data?.let { user ->
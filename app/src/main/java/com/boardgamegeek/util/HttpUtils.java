@@ -33,40 +33,76 @@ public class HttpUtils {
 		return Uri.encode(s, "UTF-8");
 	}
 
-	public static OkHttpClient getHttpClient(boolean retry202Response) {
-		Builder builder = getBuilder();
-		final List<Interceptor> interceptors = builder.interceptors();
-		interceptors.add(new UserAgentInterceptor(null));
-		interceptors.add(new RetryInterceptor(retry202Response));
-		addLoggingInterceptor(builder);
-		return builder.build();
+	private static OkHttpClient baseClient;
+	private static OkHttpClient httpClient;
+	private static OkHttpClient httpClientWithout202Retry;
+	private static OkHttpClient httpClientWithAuth;
+	private static OkHttpClient httpClientWithCache;
+
+	/**
+	 * Returns a process-wide client without authentication. Every client returned from this class shares a single
+	 * connection pool and dispatcher, so sockets and TLS sessions are reused across sequential API calls.
+	 */
+	public static synchronized OkHttpClient getHttpClient(boolean retry202Response) {
+		if (retry202Response) {
+			if (httpClient == null) httpClient = createHttpClient(true);
+			return httpClient;
+		} else {
+			if (httpClientWithout202Retry == null) httpClientWithout202Retry = createHttpClient(false);
+			return httpClientWithout202Retry;
+		}
 	}
 
-	public static OkHttpClient getHttpClientWithAuth(Context context) {
-		OkHttpClient.Builder builder = getBuilder();
-		builder.addInterceptor(new UserAgentInterceptor(context));
-		builder.addInterceptor(new AuthInterceptor(context));
-		builder.addInterceptor(new RetryInterceptor());
-		addLoggingInterceptor(builder);
-		return builder.build();
+	public static synchronized OkHttpClient getHttpClientWithAuth(Context context) {
+		if (httpClientWithAuth == null) {
+			Context applicationContext = context.getApplicationContext();
+			OkHttpClient.Builder builder = getBuilder();
+			builder.addInterceptor(new UserAgentInterceptor(applicationContext));
+			builder.addInterceptor(new AuthInterceptor(applicationContext));
+			builder.addInterceptor(new RetryInterceptor());
+			addLoggingInterceptor(builder);
+			httpClientWithAuth = builder.build();
+		}
+		return httpClientWithAuth;
+	}
+
+	public static synchronized OkHttpClient getHttpClientWithCache(Context context) {
+		if (httpClientWithCache == null) {
+			Context applicationContext = context.getApplicationContext();
+			OkHttpClient.Builder builder = getBuilder();
+			final List<Interceptor> interceptors = builder.interceptors();
+			interceptors.add(new UserAgentInterceptor(applicationContext));
+			addLoggingInterceptor(builder);
+			File cacheDir = new File(applicationContext.getCacheDir(), "http");
+			Cache cache = new Cache(cacheDir, 10 * 1024 * 1024);
+			httpClientWithCache = builder.cache(cache).build();
+		}
+		return httpClientWithCache;
 	}
 
-	public static OkHttpClient getHttpClientWithCache(Context context) {
-		OkHttpClient.Builder builder = getBuilder();
+	private static OkHttpClient createHttpClient(boolean retry202Response) {
+		Builder builder = getBuilder();
 		final List<Interceptor> interceptors = builder.interceptors();
-		interceptors.add(new UserAgentInterceptor(context));
+		interceptors.add(new UserAgentInterceptor(null));
+		interceptors.add(new RetryInterceptor(retry202Response));
 		addLoggingInterceptor(builder);
-		File cacheDir = new File(context.getCacheDir(), "http");
-		Cache cache = new Cache(cacheDir, 10 * 1024 * 1024);
-		return builder.cache(cache).build();
+		return builder.build();
 	}
 
+	/**
+	 * Each variant is derived from the same base client, sharing its connection pool, dispatcher, and thread pools,
+	 * with its own interceptor chain layered on top.
+	 */
 	@NonNull
 	private static Builder getBuilder() {
-		return new Builder()
-			.connectTimeout(HTTP_REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS)
-			.readTimeout(HTTP_REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS)
-			.writeTimeout(HTTP_REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
+		if (baseClient == null) {
+			baseClient = new Builder()
+				.connectTimeout(HTTP_REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS)
+				.readTimeout(HTTP_REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS)
+				.writeTimeout(HTTP_REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS)
+				.build();
+		}
+		return baseClient.newBuilder();
 	}
 
 	private static void addLoggingInterceptor(Builder builder) {
@@ -1,142 +1,133 @@
 package com.boardgamegeek.util;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.text.TextUtils;
 
 import com.boardgamegeek.R;
 import com.boardgamegeek.extensions.StringUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.collection.LruCache;
 
 /**
- * Converts XML returned from the BGG API into HTML.
+ * Converts XML returned from the BGG API into HTML. The markup is tokenized in a single pass over the text, and the
+ * results are cached, since the same comments are converted over and over again as a list is scrolled.
  */
 public class XmlApiMarkupConverter {
 	private static final String BASE_URL = "https://boardgamegeek.com";
 	private static final String STATIC_IMAGES_URL = "https://cf.geekdo-static.com/images/";
 	private static final String IMAGES_URL = "https://cf.geekdo-images.com/images/";
-	private final List<Replaceable> replacers;
+	private static final int CACHE_SIZE_IN_CHARS = 256 * 1024;
+	private static final int MAX_IMAGE_NAME_LENGTH = 12;
+
+	private final Map<String, String> tags = new HashMap<>();
+	private final Map<String, String> geekLinks = new HashMap<>();
+	private final Map<String, String> images = new HashMap<>();
+	private final LruCache<String, String> htmlCache = createCache();
+	private final LruCache<String, String> strippedCache = createCache();
 
 	public XmlApiMarkupConverter(Context context) {
-		replacers = new ArrayList<>();
-		replacers.add(new SimpleReplacer("\\[hr\\]", "<hr/>"));
-		replacers.add(new SimpleReplacer("\\[clear\\]", "<div style=\"clear:both\"></div>"));
+		tags.put("hr", "<hr/>");
+		tags.put("clear", "<div style=\"clear:both\"></div>");
 		createPair("b");
 		createPair("i");
 		createPair("u");
 		createPair("-", "strike");
-		replacers.add(new SimpleReplacer("\\[floatleft\\]", "<div style=\"float:left\">"));
-		replacers.add(new SimpleReplacer("\\[/floatleft\\]", "</div>"));
+		tags.put("floatleft", "<div style=\"float:left\">");
+		tags.put("/floatleft", "</div>");
 		createPair("center");
-		replacers.add(new SimpleReplacer("\\[floatright\\]", "<div style=\"float:right\">"));
-		replacers.add(new SimpleReplacer("\\[/floatright\\]", "</div>"));
-		replacers.add(new Replacer("\\[COLOR=([^#].*?)\\]", "<span style=\"color:", "\">"));
-		replacers.add(new Replacer("\\[COLOR=#(.*?)\\]", "<span style=\"color:#", "\">"));
-		replacers.add(new SimpleReplacer("\\[/COLOR\\]", "</span>"));
-		replacers.add(new Replacer("\\[BGCOLOR=([^#].*?)\\]", "<span style=\"background-color:", "\">"));
-		replacers.add(new Replacer("\\[BGCOLOR=#(.*?)\\]", "<span style=\"background-color#:", "\">"));
-		replacers.add(new SimpleReplacer("\\[/BGCOLOR\\]", "</span>"));
-		// TODO: determine when image is a PNG
-		replacers.add(new Replacer("\\[ImageID=(\\d+).*?\\]", "<div style=\"display:inline\"><img src=\"" + IMAGES_URL + "pic", "_t.jpg\"/></div>"));
-		replacers.add(new Replacer("\\[IMG\\](.*?)\\[/IMG\\]", "<div style=\"display:inline\"><img src=\"", "\"/></div>"));
+		tags.put("floatright", "<div style=\"float:right\">");
+		tags.put("/floatright", "</div>");
+		tags.put("/color", "</span>");
+		tags.put("/bgcolor", "</span>");
 		// TODO: YouTube, Vimeo, tweet, mp3
-		replacers.add(new GeekUrlReplacer());
-		replacers.add(GeekLinkReplacer.createNumeric("thing"));
-		replacers.add(GeekLinkReplacer.createNumeric("thread"));
-		replacers.add(GeekLinkReplacer.createNumeric("article", "reply"));// TODO: add #id
-		replacers.add(GeekLinkReplacer.createNumeric("geeklist", "GeekList"));
-		replacers.add(GeekLinkReplacer.createNumeric("filepage", "file"));
-		replacers.add(GeekLinkReplacer.createNumeric("person"));
-		replacers.add(GeekLinkReplacer.createNumeric("company"));
-		replacers.add(GeekLinkReplacer.createNumeric("property"));
-		replacers.add(GeekLinkReplacer.createNumeric("family"));
-		replacers.add(GeekLinkReplacer.createNumeric("guild"));
-		replacers.add(GeekLinkReplacer.createAlpha("user"));
-		replacers.add(GeekLinkReplacer.createNumeric("question", "GeekQuestion"));
-		replacers.add(GeekLinkReplacer.createNumeric("media", "podcast episode"));
-		replacers.add(GeekLinkReplacer.createNumeric("blog"));
-		replacers.add(GeekLinkReplacer.createNumeric("blogpost", "blog post"));
-		replacers.add(new SimpleReplacer("\\[q\\]", "Quote:<blockquote>"));
-		replacers.add(new Replacer("\\[q=\"(.*?)\"\\]", "", " wrote:<blockquote>"));
-		replacers.add(new SimpleReplacer("\\[/q\\]", "</blockquote>"));
-		replacers.add(new SimpleReplacer("\\[o\\]", String.format("<details><summary>%s</summary>", context.getString(R.string.spoiler))));
-		replacers.add(new SimpleReplacer("\\[/o\\]", "</details>"));
+		geekLinks.put("thing", "thing");
+		geekLinks.put("thread", "thread");
+		geekLinks.put("article", "reply"); // TODO: add #id
+		geekLinks.put("geeklist", "GeekList");
+		geekLinks.put("filepage", "file");
+		geekLinks.put("person", "person");
+		geekLinks.put("company", "company");
+		geekLinks.put("property", "property");
+		geekLinks.put("family", "family");
+		geekLinks.put("guild", "guild");
+		geekLinks.put("user", "user");
+		geekLinks.put("question", "GeekQuestion");
+		geekLinks.put("media", "podcast episode");
+		geekLinks.put("blog", "blog");
+		geekLinks.put("blogpost", "blog post");
+		tags.put("q", "Quote:<blockquote>");
+		tags.put("/q", "</blockquote>");
+		tags.put("o", String.format("<details><summary>%s</summary>", context.getString(R.string.spoiler)));
+		tags.put("/o", "</details>");
 		createPair("c", "tt");
-		replacers.add(new UrlReplacer());
-		replacers.add(new UrlReplacer2());
 		// TODO: roll
 		// TODO: size isn't working
-		replacers.add(new Replacer("\\[size=(.*?)\\]", "<span font-size=\"", "px\">"));
-		replacers.add(new SimpleReplacer("\\[/size\\]", "</span>"));
-
-		replacers.add(SimpleReplacer.createCustomImage("\\:\\)\\s", "smile.gif"));
-		replacers.add(SimpleReplacer.createCustomImage("\\:\\(\\s", "sad.gif"));
-		replacers.add(SimpleReplacer.createCustomImage("\\:D\\s", "biggrin.gif"));
-		replacers.add(SimpleReplacer.createCustomImage("\\:p\\s", "tongue.gif"));
-		replacers.add(SimpleReplacer.createCustomImage("\\;\\)\\s", "wink.gif"));
-		replacers.add(SimpleReplacer.createImage("what", "rock.gif"));
-		replacers.add(SimpleReplacer.createGif("wow"));
-		replacers.add(SimpleReplacer.createGif("angry"));
-		replacers.add(SimpleReplacer.createGif("cool"));
-		replacers.add(SimpleReplacer.createGif("laugh"));
-		replacers.add(SimpleReplacer.createGif("meeple"));
-		replacers.add(SimpleReplacer.createGif("surprise"));
-		replacers.add(SimpleReplacer.createGif("blush"));
-		replacers.add(SimpleReplacer.createGif("snore"));
-		replacers.add(SimpleReplacer.createGif("cry"));
-		replacers.add(SimpleReplacer.createGif("kiss"));
-		replacers.add(SimpleReplacer.createGif("modest"));
-		replacers.add(SimpleReplacer.createGif("whistle"));
-		replacers.add(SimpleReplacer.createGif("devil"));
-		replacers.add(SimpleReplacer.createGif("soblue"));
-		replacers.add(SimpleReplacer.createGif("yuk"));
-		replacers.add(SimpleReplacer.createGif("gulp"));
-		replacers.add(SimpleReplacer.createGif("shake"));
-		replacers.add(SimpleReplacer.createGif("arrrh"));
-		replacers.add(SimpleReplacer.createGif("zombie"));
-		replacers.add(SimpleReplacer.createGif("robot"));
-		replacers.add(SimpleReplacer.createGif("ninja"));
-		replacers.add(SimpleReplacer.createGif("sauron"));
-		replacers.add(SimpleReplacer.createGif("goo"));
-		replacers.add(SimpleReplacer.createImage("star", "star_yellow.gif"));
-		replacers.add(SimpleReplacer.createImage("halfstar", "star_yellowhalf.gif"));
-		replacers.add(SimpleReplacer.createImage("nostar", "star_white.gif"));
-		replacers.add(SimpleReplacer.createImage("gg", "geekgold.gif"));
-		replacers.add(SimpleReplacer.createGif("bag"));
-		replacers.add(SimpleReplacer.createGif("bacon"));
-		replacers.add(SimpleReplacer.createGif("caravan"));
+		tags.put("/size", "</span>");
+
+		createImage("what", "rock.gif");
+		createGif("wow");
+		createGif("angry");
+		createGif("cool");
+		createGif("laugh");
+		createGif("meeple");
+		createGif("surprise");
+		createGif("blush");
+		createGif("snore");
+		createGif("cry");
+		createGif("kiss");
+		createGif("modest");
+		createGif("whistle");
+		createGif("devil");
+		createGif("soblue");
+		createGif("yuk");
+		createGif("gulp");
+		createGif("shake");
+		createGif("arrrh");
+		createGif("zombie");
+		createGif("robot");
+		createGif("ninja");
+		createGif("sauron");
+		createGif("goo");
+		createImage("star", "star_yellow.gif");
+		createImage("halfstar", "star_yellowhalf.gif");
+		createImage("nostar", "star_white.gif");
+		createImage("gg", "geekgold.gif");
+		createGif("bag");
+		createGif("bacon");
+		createGif("caravan");
 		createCamelImage("mint");
 		createCamelImage("lime");
 		createCamelImage("grape");
 		createCamelImage("lemon");
 		createCamelImage("orange");
-		replacers.add(SimpleReplacer.createGif("goldencamel"));
+		createGif("goldencamel");
 		createTajImage("blue");
 		createTajImage("brown");
 		createTajImage("gray");
 		createTajImage("maroon");
 		createTajImage("tan");
 		createTajImage("white");
-		replacers.add(SimpleReplacer.createImage("thumbsup", "thumbs-up.gif"));
-		replacers.add(SimpleReplacer.createImage("thumbsdown", "thumbs-down.gif"));
-		replacers.add(SimpleReplacer.createGif("coffee"));
-		replacers.add(SimpleReplacer.createGif("tobacco"));
-		replacers.add(SimpleReplacer.createGif("indigo"));
-		replacers.add(SimpleReplacer.createGif("sugar"));
-		replacers.add(SimpleReplacer.createGif("corn"));
-		replacers.add(SimpleReplacer.createGif("colonist"));
-		replacers.add(SimpleReplacer.createGif("1vp"));
-		replacers.add(SimpleReplacer.createGif("5vp"));
-		replacers.add(SimpleReplacer.createGif("1db"));
-		replacers.add(SimpleReplacer.createGif("5db"));
+		createImage("thumbsup", "thumbs-up.gif");
+		createImage("thumbsdown", "thumbs-down.gif");
+		createGif("coffee");
+		createGif("tobacco");
+		createGif("indigo");
+		createGif("sugar");
+		createGif("corn");
+		createGif("colonist");
+		createGif("1vp");
+		createGif("5vp");
+		createGif("1db");
+		createGif("5db");
 		for (int i = 0; i <= 9; i++) {
-			replacers.add(SimpleReplacer.createImage("d10-" + i, "d10-" + i + ".gif"));
+			createImage("d10-" + i, "d10-" + i + ".gif");
 		}
-		replacers.add(SimpleReplacer.createImage("city", "ttr_city.gif"));
+		createImage("city", "ttr_city.gif");
 		createTrainImage("red");
 		createTrainImage("green");
 		createTrainImage("blue");
@@ -144,86 +135,104 @@ public class XmlApiMarkupConverter {
 		createTrainImage("black");
 		createTrainImage("purple");
 		createTrainImage("white");
-		replacers.add(SimpleReplacer.createGif("wood"));
-		replacers.add(SimpleReplacer.createGif("wheat"));
-		replacers.add(SimpleReplacer.createGif("sheep"));
-		replacers.add(SimpleReplacer.createGif("ore"));
-		replacers.add(SimpleReplacer.createGif("brick"));
-		replacers.add(SimpleReplacer.createGif("cinnamon"));
-		replacers.add(SimpleReplacer.createGif("clove"));
-		replacers.add(SimpleReplacer.createGif("ginger"));
-		replacers.add(SimpleReplacer.createGif("nutmeg"));
-		replacers.add(SimpleReplacer.createGif("pepper"));
-		replacers.add(SimpleReplacer.createGif("coal"));
-		replacers.add(SimpleReplacer.createGif("oil"));
-		replacers.add(SimpleReplacer.createGif("trash"));
-		replacers.add(SimpleReplacer.createGif("nuclear"));
+		createGif("wood");
+		createGif("wheat");
+		createGif("sheep");
+		createGif("ore");
+		createGif("brick");
+		createGif("cinnamon");
+		createGif("clove");
+		createGif("ginger");
+		createGif("nutmeg");
+		createGif("pepper");
+		createGif("coal");
+		createGif("oil");
+		createGif("trash");
+		createGif("nuclear");
 		for (int i = 1; i <= 6; i++) {
-			replacers.add(SimpleReplacer.createImage("d6-" + i, "die-white-" + i + ".gif"));
-			replacers.add(SimpleReplacer.createImage("bd6-" + i, "die-black-" + i + ".gif"));
-		}
-		replacers.add(SimpleReplacer.createPng("tankard"));
-		replacers.add(SimpleReplacer.createPng("jug"));
-		replacers.add(SimpleReplacer.createPng("chalice"));
-		replacers.add(SimpleReplacer.createGif("worker"));
-		replacers.add(SimpleReplacer.createGif("building"));
-		replacers.add(SimpleReplacer.createGif("aristocrat"));
-		replacers.add(SimpleReplacer.createGif("trade"));
-		replacers.add(SimpleReplacer.createPng("arrowN"));
-		replacers.add(SimpleReplacer.createPng("arrowNE"));
-		replacers.add(SimpleReplacer.createPng("arrowE"));
-		replacers.add(SimpleReplacer.createPng("arrowSE"));
-		replacers.add(SimpleReplacer.createPng("arrowS"));
-		replacers.add(SimpleReplacer.createPng("arrowSW"));
-		replacers.add(SimpleReplacer.createPng("arrowW"));
-		replacers.add(SimpleReplacer.createPng("arrowNW"));
-		replacers.add(SimpleReplacer.createPng("power"));
-		replacers.add(SimpleReplacer.createPng("XBA"));
-		replacers.add(SimpleReplacer.createPng("XBB"));
-		replacers.add(SimpleReplacer.createPng("XBX"));
-		replacers.add(SimpleReplacer.createPng("XBY"));
-		replacers.add(SimpleReplacer.createPng("PSC"));
-		replacers.add(SimpleReplacer.createPng("PSS"));
-		replacers.add(SimpleReplacer.createPng("PST"));
-		replacers.add(SimpleReplacer.createPng("PSX"));
-		replacers.add(SimpleReplacer.createPng("WiiH"));
-		replacers.add(SimpleReplacer.createPng("Wii1"));
-		replacers.add(SimpleReplacer.createPng("Wii2"));
-		replacers.add(SimpleReplacer.createPng("WiiA"));
-		replacers.add(SimpleReplacer.createPng("WiiB"));
-		replacers.add(SimpleReplacer.createPng("WiiC"));
-		replacers.add(SimpleReplacer.createPng("WiiX"));
-		replacers.add(SimpleReplacer.createPng("WiiY"));
-		replacers.add(SimpleReplacer.createPng("WiiZ"));
-		replacers.add(SimpleReplacer.createPng("Wii\\+"));
-		replacers.add(SimpleReplacer.createPng("Wii-"));
-		replacers.add(SimpleReplacer.createImage("!block", "bang_block.png"));
-		replacers.add(SimpleReplacer.createImage("\\?block", "question_block.png"));
-		replacers.add(SimpleReplacer.createImage("blank", "tiles/BLANK.gif"));
-		replacers.add(new UpperCaseReplacer("\\:([A-Za-z])\\:", "<img src=\"" + STATIC_IMAGES_URL + "tiles/", ".gif\"/>"));
-		replacers.add(new Replacer("\\:k([A-Za-z])\\:", "<img src=\"" + STATIC_IMAGES_URL + "k", ".png\"/>"));
+			createImage("d6-" + i, "die-white-" + i + ".gif");
+			createImage("bd6-" + i, "die-black-" + i + ".gif");
+		}
+		createPng("tankard");
+		createPng("jug");
+		createPng("chalice");
+		createGif("worker");
+		createGif("building");
+		createGif("aristocrat");
+		createGif("trade");
+		createPng("arrowN");
+		createPng("arrowNE");
+		createPng("arrowE");
+		createPng("arrowSE");
+		createPng("arrowS");
+		createPng("arrowSW");
+		createPng("arrowW");
+		createPng("arrowNW");
+		createPng("power");
+		createPng("XBA");
+		createPng("XBB");
+		createPng("XBX");
+		createPng("XBY");
+		createPng("PSC");
+		createPng("PSS");
+		createPng("PST");
+		createPng("PSX");
+		createPng("WiiH");
+		createPng("Wii1");
+		createPng("Wii2");
+		createPng("WiiA");
+		createPng("WiiB");
+		createPng("WiiC");
+		createPng("WiiX");
+		createPng("WiiY");
+		createPng("WiiZ");
+		createPng("Wii+");
+		createPng("Wii-");
+		createImage("!block", "bang_block.png");
+		createImage("?block", "question_block.png");
+		createImage("blank", "tiles/BLANK.gif");
+	}
+
+	private static LruCache<String, String> createCache() {
+		return new LruCache<String, String>(CACHE_SIZE_IN_CHARS) {
+			@Override
+			protected int sizeOf(@NonNull String key, @NonNull String value) {
+				return key.length() + value.length();
+			}
+		};
 	}
 
 	private void createPair(String tag) {
-		replacers.add(SimpleReplacer.createStart(tag));
-		replacers.add(SimpleReplacer.createEnd(tag));
+		createPair(tag, tag);
 	}
 
 	private void createPair(String tag, String replacementTag) {
-		replacers.add(SimpleReplacer.createStart(tag, replacementTag));
-		replacers.add(SimpleReplacer.createEnd(tag, replacementTag));
+		tags.put(tag, "<" + replacementTag + ">");
+		tags.put("/" + tag, "</" + replacementTag + ">");
+	}
+
+	private void createGif(String image) {
+		createImage(image, image + ".gif");
+	}
+
+	private void createPng(String image) {
+		createImage(image, image + ".png");
+	}
+
+	private void createImage(String image, String imageFile) {
+		images.put(image.toLowerCase(Locale.US), imageFile);
 	}
 
 	private void createCamelImage(String color) {
-		replacers.add(SimpleReplacer.createImage(color + "camel", "camel_" + color + ".gif"));
+		createImage(color + "camel", "camel_" + color + ".gif");
 	}
 
 	private void createTajImage(String color) {
-		replacers.add(SimpleReplacer.createImage(color + "taj", "taj_" + color + ".gif"));
+		createImage(color + "taj", "taj_" + color + ".gif");
 	}
 
 	private void createTrainImage(String color) {
-		replacers.add(SimpleReplacer.createImage(color + "train", "ttr_" + color + ".gif"));
+		createImage(color + "train", "ttr_" + color + ".gif");
 	}
 
 	public String toHtml(String text) {
@@ -231,12 +240,12 @@ public class XmlApiMarkupConverter {
 			return "";
 		}
 
-		for (Replaceable replacer : replacers) {
-			text = replacer.replace(text);
+		String html = htmlCache.get(text);
+		if (html == null) {
+			html = "<div style=\"white-space: pre-wrap\">" + convert(text, false) + "</div>";
+			htmlCache.put(text, html);
 		}
-		text = "<div style=\"white-space: pre-wrap\">" + text + "</div>";
-
-		return text;
+		return html;
 	}
 
 	public String strip(String text) {
@@ -244,314 +253,196 @@ public class XmlApiMarkupConverter {
 			return "";
 		}
 
-		for (Replaceable replacer : replacers) {
-			text = replacer.strip(text);
+		String stripped = strippedCache.get(text);
+		if (stripped == null) {
+			stripped = convert(text, true);
+			strippedCache.put(text, stripped);
 		}
-
-		return text;
-	}
-
-	interface Replaceable {
-		String replace(String text);
-
-		String strip(String text);
+		return stripped;
 	}
 
-	private static class SimpleReplacer implements Replaceable {
-		final Pattern pattern;
-		final String replacement;
-
-		public SimpleReplacer(String pattern, String replacement) {
-			this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-			this.replacement = replacement;
-		}
-
-		public static SimpleReplacer createStart(String tag) {
-			return new SimpleReplacer("\\[" + tag + "\\]", "<" + tag + ">");
-		}
-
-		public static SimpleReplacer createStart(String tag, String replacementTag) {
-			return new SimpleReplacer("\\[" + tag + "\\]", "<" + replacementTag + ">");
-		}
-
-		public static SimpleReplacer createEnd(String tag) {
-			return new SimpleReplacer("\\[/" + tag + "\\]", "</" + tag + ">");
-		}
-
-		public static SimpleReplacer createEnd(String tag, String replacementTag) {
-			return new SimpleReplacer("\\[/" + tag + "\\]", "</" + replacementTag + ">");
-		}
-
-		public static SimpleReplacer createGif(String image) {
-			return new SimpleReplacer("\\:" + image + "\\:", "<img src=\"" + STATIC_IMAGES_URL + image + ".gif\"/>");
-		}
-
-		public static SimpleReplacer createPng(String image) {
-			return new SimpleReplacer("\\:" + image + "\\:", "<img src=\"" + STATIC_IMAGES_URL + image + ".png\"/>");
-		}
-
-		public static SimpleReplacer createImage(String image, String imageFile) {
-			return new SimpleReplacer("\\:" + image + "\\:", "<img src=\"" + STATIC_IMAGES_URL + imageFile + "\"/>");
-		}
-
-		public static SimpleReplacer createCustomImage(String image, String imageFile) {
-			return new SimpleReplacer(image, "<img src=\"" + STATIC_IMAGES_URL + imageFile + "\"/>");
-		}
-
-		@Override
-		public String replace(String text) {
-			Matcher matcher = pattern.matcher(text);
-			if (matcher.find()) {
-				return matcher.replaceAll(replacement);
-			}
-			return text;
-		}
-
-		@Override
-		public String strip(String text) {
-			return pattern.matcher(text).replaceAll("");
-		}
-	}
-
-	private static class Replacer implements Replaceable {
-		private final Pattern pattern;
-		private final String prefix;
-		private final String suffix;
-
-		public Replacer(String pattern, String prefix, String suffix) {
-			this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-			this.prefix = prefix;
-			this.suffix = suffix;
-		}
-
-		@Override
-		public String replace(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer buffer = new StringBuffer();
-			while (matcher.find()) {
-				matcher.appendReplacement(buffer, prefix + matcher.group(1) + suffix);
-			}
-			matcher.appendTail(buffer);
-			return buffer.toString();
-		}
-
-		@Override
-		public String strip(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer buffer = new StringBuffer();
-			while (matcher.find()) {
-				matcher.appendReplacement(buffer, matcher.group(1));
-			}
-			matcher.appendTail(buffer);
-			return buffer.toString();
-		}
-	}
-
-	private static class UpperCaseReplacer implements Replaceable {
-		private final Pattern pattern;
-		private final String prefix;
-		private final String suffix;
-
-		public UpperCaseReplacer(String pattern, String prefix, String suffix) {
-			this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-			this.prefix = prefix;
-			this.suffix = suffix;
-		}
-
-		@SuppressLint("DefaultLocale")
-		@Override
-		public String replace(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer buffer = new StringBuffer();
-			while (matcher.find()) {
-				matcher.appendReplacement(buffer, prefix + matcher.group(1).toUpperCase() + suffix);
+	/**
+	 * Walks the text once, copying it to the output while replacing each tag and image code as it's reached. The
+	 * display text of links is converted recursively. Like BGG, a tag's argument and its closing tag must be on the
+	 * same line as the tag.
+	 */
+	private String convert(String text, boolean strip) {
+		StringBuilder sb = new StringBuilder(text.length() + text.length() / 4);
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			int next = -1;
+			if (c == '[') {
+				next = convertTag(text, i, sb, strip);
+			} else if (c == ':') {
+				next = convertImage(text, i, sb, strip);
+			} else if (c == ';' && isSmiley(text, i, ')')) {
+				next = appendSmiley(sb, "wink.gif", i, strip);
 			}
-			matcher.appendTail(buffer);
-			return buffer.toString();
-		}
-
-		@Override
-		public String strip(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer buffer = new StringBuffer();
-			while (matcher.find()) {
-				matcher.appendReplacement(buffer, matcher.group(1).toUpperCase());
+			if (next == -1) {
+				sb.append(c);
+				i++;
+			} else {
+				i = next;
 			}
-			matcher.appendTail(buffer);
-			return buffer.toString();
 		}
+		return sb.toString();
 	}
 
-	public static class UrlReplacer implements Replaceable {
-		private final Pattern pattern;
-
-		public UrlReplacer() {
-			pattern = Pattern.compile("\\[url](.*?)\\[/url]", Pattern.CASE_INSENSITIVE);
-		}
-
-		@Override
-		public String replace(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				String url = StringUtils.ensureHttpsScheme(matcher.group(1));
-				matcher.appendReplacement(result, "<a href=\"" + url + "\">" + url + "</a>");
-			}
-			matcher.appendTail(result);
-			return result.toString();
-		}
-
-		@Override
-		public String strip(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				matcher.appendReplacement(result, StringUtils.ensureHttpsScheme(matcher.group(1)));
+	/**
+	 * Converts the tag starting at the bracket at {@code start}.
+	 *
+	 * @return the index just past what was converted, or -1 if it isn't a tag.
+	 */
+	private int convertTag(String text, int start, StringBuilder sb, boolean strip) {
+		int end = indexOnLine(text, "]", start + 1);
+		if (end == -1) return -1;
+		String tag = text.substring(start + 1, end);
+		int equals = tag.indexOf('=');
+		String name = (equals == -1 ? tag : tag.substring(0, equals)).toLowerCase(Locale.US);
+		String argument = equals == -1 ? null : tag.substring(equals + 1);
+		int contentStart = end + 1;
+
+		if (argument == null) {
+			String replacement = tags.get(name);
+			if (replacement != null) {
+				if (!strip) sb.append(replacement);
+				return contentStart;
 			}
-			matcher.appendTail(result);
-			return result.toString();
-		}
-	}
-
-	public static class UrlReplacer2 implements Replaceable {
-		private final Pattern pattern;
-
-		public UrlReplacer2() {
-			pattern = Pattern.compile("\\[url=(.*?)](.*?)\\[/url]", Pattern.CASE_INSENSITIVE);
-		}
-
-		@Override
-		public String replace(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				String url = StringUtils.ensureHttpsScheme(matcher.group(1));
-				String displayText = matcher.group(2);
-				if (TextUtils.isEmpty(displayText)) {
-					matcher.appendReplacement(result, "<a href=\"" + url + "\">" + url + "</a>");
+			if (name.equals("img") || name.equals("url")) {
+				int close = indexOnLine(text, "[/" + name + "]", contentStart);
+				if (close == -1) return -1;
+				String content = text.substring(contentStart, close);
+				if (name.equals("img")) {
+					sb.append(strip ? content : "<div style=\"display:inline\"><img src=\"" + content + "\"/></div>");
 				} else {
-					matcher.appendReplacement(result, "<a href=\"" + url + "\">" + displayText + "</a>");
+					String url = StringUtils.ensureHttpsScheme(content);
+					sb.append(strip ? url : "<a href=\"" + url + "\">" + url + "</a>");
 				}
+				return close + name.length() + 3;
 			}
-			matcher.appendTail(result);
-			return result.toString();
+			return -1;
 		}
 
-		@Override
-		public String strip(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				String displayText = matcher.group(2);
-				if (TextUtils.isEmpty(displayText)) {
-					matcher.appendReplacement(result, StringUtils.ensureHttpsScheme(matcher.group(1)));
+		switch (name) {
+			case "color":
+			case "bgcolor":
+				if (argument.isEmpty()) return -1;
+				if (strip) {
+					sb.append(argument.startsWith("#") ? argument.substring(1) : argument);
 				} else {
-					matcher.appendReplacement(result, displayText);
+					sb.append(name.equals("color") ? "<span style=\"color:" : "<span style=\"background-color:").append(argument).append("\">");
 				}
-			}
-			matcher.appendTail(result);
-			return result.toString();
+				return contentStart;
+			case "size":
+				sb.append(strip ? argument : "<span font-size=\"" + argument + "px\">");
+				return contentStart;
+			case "imageid":
+				// TODO: determine when image is a PNG
+				int digits = 0;
+				while (digits < argument.length() && Character.isDigit(argument.charAt(digits))) digits++;
+				if (digits == 0) return -1;
+				String imageId = argument.substring(0, digits);
+				sb.append(strip ? imageId : "<div style=\"display:inline\"><img src=\"" + IMAGES_URL + "pic" + imageId + "_t.jpg\"/></div>");
+				return contentStart;
+			case "q":
+				if (argument.length() < 2 || !argument.startsWith("\"") || !argument.endsWith("\"")) return -1;
+				String author = argument.substring(1, argument.length() - 1);
+				sb.append(author);
+				if (!strip) sb.append(" wrote:<blockquote>");
+				return contentStart;
+			case "url":
+			case "geekurl":
+				int close = indexOnLine(text, "[/" + name + "]", contentStart);
+				if (close == -1) return -1;
+				String displayText = convert(text.substring(contentStart, close), strip);
+				String url = name.equals("url") ? StringUtils.ensureHttpsScheme(argument) : BASE_URL + argument;
+				String defaultText = name.equals("url") ? url : argument;
+				appendLink(sb, url, TextUtils.isEmpty(displayText) ? defaultText : displayText, strip);
+				return close + name.length() + 3;
+			default:
+				String displayPrefix = geekLinks.get(name);
+				if (displayPrefix == null || argument.isEmpty()) return -1;
+				if (!name.equals("user") && !TextUtils.isDigitsOnly(argument)) return -1;
+				int linkClose = indexOnLine(text, "[/" + name + "]", contentStart);
+				if (linkClose == -1) return -1;
+				String linkText = convert(text.substring(contentStart, linkClose), strip);
+				appendLink(sb, BASE_URL + "/" + name + "/" + argument, TextUtils.isEmpty(linkText) ? displayPrefix + " " + argument : linkText, strip);
+				return linkClose + name.length() + 3;
 		}
 	}
 
-	public static class GeekUrlReplacer implements Replaceable {
-		private final Pattern pattern;
-
-		public GeekUrlReplacer() {
-			pattern = Pattern.compile("\\[geekurl=(.*?)](.*?)\\[/geekurl]", Pattern.CASE_INSENSITIVE);
-		}
-
-		@Override
-		public String replace(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				String displayText = matcher.group(2);
-				if (TextUtils.isEmpty(displayText)) {
-					matcher.appendReplacement(result, "<a href=\"" + BASE_URL + matcher.group(1) + "\">" + matcher.group(1) + "</a>");
-				} else {
-					matcher.appendReplacement(result, "<a href=\"" + BASE_URL + matcher.group(1) + "\">" + displayText + "</a>");
-				}
-			}
-			matcher.appendTail(result);
-			return result.toString();
-		}
-
-		@Override
-		public String strip(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				String displayText = matcher.group(2);
-				if (TextUtils.isEmpty(displayText)) {
-					matcher.appendReplacement(result, matcher.group(1));
-				} else {
-					matcher.appendReplacement(result, displayText);
-				}
-			}
-			matcher.appendTail(result);
-			return result.toString();
+	private static void appendLink(StringBuilder sb, String url, String displayText, boolean strip) {
+		if (strip) {
+			sb.append(displayText);
+		} else {
+			sb.append("<a href=\"").append(url).append("\">").append(displayText).append("</a>");
 		}
 	}
 
-	/***
-	 * Replaces a GeekLink with an HREF tag.
-	 * [thing=13]Catan[/thing] becomes <a href="https://boardgamegeek.com/thing/13">Catan</a>
-	 * [thing=13][/thing] becomes <a href="https://boardgamegeek.com/thing/13">thing 13</a>
+	/**
+	 * Converts the image code (e.g. <code>:meeple:</code> or <code>:)</code>) starting at the colon at {@code start}.
+	 *
+	 * @return the index just past what was converted, or -1 if it isn't an image code.
 	 */
-	public static class GeekLinkReplacer implements Replaceable {
-		private final Pattern pattern;
-		private final String url;
-		private final String displayPrefix;
-
-		private GeekLinkReplacer(String pattern, String url, String displayPrefix) {
-			this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-			this.url = url;
-			this.displayPrefix = displayPrefix;
-		}
+	private int convertImage(String text, int start, StringBuilder sb, boolean strip) {
+		if (isSmiley(text, start, ')')) return appendSmiley(sb, "smile.gif", start, strip);
+		if (isSmiley(text, start, '(')) return appendSmiley(sb, "sad.gif", start, strip);
+		if (isSmiley(text, start, 'd')) return appendSmiley(sb, "biggrin.gif", start, strip);
+		if (isSmiley(text, start, 'p')) return appendSmiley(sb, "tongue.gif", start, strip);
+
+		int end = start + 1;
+		int limit = Math.min(text.length(), start + MAX_IMAGE_NAME_LENGTH + 2);
+		while (end < limit && isImageNameChar(text.charAt(end))) end++;
+		if (end == start + 1 || end >= limit || text.charAt(end) != ':') return -1;
+		String name = text.substring(start + 1, end);
+
+		String imageFile = images.get(name.toLowerCase(Locale.US));
+		if (imageFile != null) {
+			if (!strip) sb.append("<img src=\"").append(STATIC_IMAGES_URL).append(imageFile).append("\"/>");
+		} else if (name.length() == 1 && isLetter(name.charAt(0))) {
+			String tile = name.toUpperCase(Locale.US);
+			sb.append(strip ? tile : "<img src=\"" + STATIC_IMAGES_URL + "tiles/" + tile + ".gif\"/>");
+		} else if (name.length() == 2 && Character.toLowerCase(name.charAt(0)) == 'k' && isLetter(name.charAt(1))) {
+			sb.append(strip ? name.substring(1) : "<img src=\"" + STATIC_IMAGES_URL + "k" + name.charAt(1) + ".png\"/>");
+		} else {
+			return -1;
+		}
+		return end + 1;
+	}
 
-		static GeekLinkReplacer createAlpha(String path) {
-			return new GeekLinkReplacer("\\[" + path + "=(.*?)\\](.*?)\\[/" + path + "\\]", BASE_URL + "/" + path + "/", path);
-		}
+	/**
+	 * A smiley is two characters followed by whitespace, which is replaced along with it.
+	 */
+	private static boolean isSmiley(String text, int start, char mouth) {
+		return start + 2 < text.length() &&
+			Character.toLowerCase(text.charAt(start + 1)) == mouth &&
+			Character.isWhitespace(text.charAt(start + 2));
+	}
 
-		static GeekLinkReplacer createNumeric(String path) {
-			return createNumeric(path, path);
-		}
+	private static int appendSmiley(StringBuilder sb, String imageFile, int start, boolean strip) {
+		if (!strip) sb.append("<img src=\"").append(STATIC_IMAGES_URL).append(imageFile).append("\"/>");
+		return start + 3;
+	}
 
-		static GeekLinkReplacer createNumeric(String path, String display) {
-			return new GeekLinkReplacer("\\[" + path + "=(\\d+)\\](.*?)\\[/" + path + "\\]", BASE_URL + "/" + path + "/", display);
-		}
+	private static boolean isImageNameChar(char c) {
+		return isLetter(c) || (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '!' || c == '?';
+	}
 
-		@Override
-		public String replace(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				String displayText = matcher.group(2);
-				if (TextUtils.isEmpty(displayText)) {
-					matcher.appendReplacement(result, "<a href=\"" + url + matcher.group(1) + "\">" + displayPrefix + " " + matcher.group(1) + "</a>");
-				} else {
-					matcher.appendReplacement(result, "<a href=\"" + url + matcher.group(1) + "\">" + displayText + "</a>");
-				}
-			}
-			matcher.appendTail(result);
-			return result.toString();
-		}
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
 
-		@Override
-		public String strip(String text) {
-			Matcher matcher = pattern.matcher(text);
-			StringBuffer result = new StringBuffer();
-			while (matcher.find()) {
-				String displayText = matcher.group(2);
-				if (TextUtils.isEmpty(displayText)) {
-					matcher.appendReplacement(result, displayPrefix + " " + matcher.group(1));
-				} else {
-					matcher.appendReplacement(result, displayText);
-				}
-			}
-			matcher.appendTail(result);
-			return result.toString();
+	/**
+	 * Finds {@code target}, ignoring case, at or after {@code from} but before the end of the line.
+	 */
+	private static int indexOnLine(String text, String target, int from) {
+		int lineEnd = text.indexOf('\n', from);
+		int last = (lineEnd == -1 ? text.length() : lineEnd) - target.length();
+		for (int i = from; i <= last; i++) {
+			if (text.regionMatches(true, i, target, 0, target.length())) return i;
 		}
+		return -1;
 	}
 }